@@ -2,6 +2,7 @@ from flask import Flask, request, Response
 import requests
 import argparse
 import json
+from concurrent.futures import ThreadPoolExecutor
 
 app = Flask(__name__)
 
@@ -9,6 +10,10 @@ app = Flask(__name__)
 OLLAMA_API_URL = "http://localhost:11434/api/generate"
 MODEL = "llama3.2:latest"
 
+# Largest /chat/batch request, and how many of its inputs are sent to Ollama at once
+MAX_BATCH_SIZE = 50
+BATCH_WORKERS = 4
+
 # System prompt template for task parsing
 SYSTEM_PROMPT = """
 You are a helpful assistant that organizes tasks. Your only job is to extract task information from user input.
@@ -66,27 +71,16 @@ def check_ollama_server():
 def index():
     return "Welcome to the Smart ToDo API powered by Ollama!"
 
-@app.route('/chat', methods=['POST'])
-def chat():
-    # Get userMessage from form data or raw body
-    user_message = request.form.get('userMessage') or request.get_data(as_text=True).strip()
-
-    # Validate userMessage
-    if not user_message:
-        return Response("Error: userMessage cannot be empty", status=400, mimetype='text/plain')
-
-    # Print received request
-    print("\nReceived Request:")
-    print(f"userMessage: {user_message}")
-
+def build_payload(user_message, stream):
+    """The Ollama generate request for one task."""
     # Create a full prompt with system instructions
     full_prompt = f"{SYSTEM_PROMPT}\n\nUser: \"{user_message}\"\nResponse:"
 
     # Prepare payload for Ollama API
-    payload = {
+    return {
         "model": MODEL,
         "prompt": full_prompt,
-        "stream": False,
+        "stream": stream,
         "options": {
             "temperature": 0.15,
             "top_p": 0.95,
@@ -95,6 +89,10 @@ def chat():
         }
     }
 
+def classify(user_message):
+    """Ask the model about one task. Returns (parsed JSON dict or None, raw model output)."""
+    payload = build_payload(user_message, False)
+
     # Send request to Ollama API
     try:
         response = requests.post(OLLAMA_API_URL, json=payload)
@@ -124,15 +122,79 @@ def chat():
             if not all(key in json_response for key in ["task", "category", "time"]):
                 raise ValueError("Missing required fields in JSON response")
                 
-            return Response(json.dumps(json_response), mimetype='application/json')
+            return json_response, raw_output
     except (json.JSONDecodeError, ValueError) as e:
         print(f"Failed to parse JSON response: {str(e)}")
         # Fall back to returning raw text
         pass
+
+    return None, raw_output
+
+def stream_classification(user_message):
+    """Pass Ollama's streamed chunks through, one JSON object per line, each with a
+    "response" fragment and a "done" flag. A client that has read enough disconnects;
+    closing the Ollama request then stops the generation too."""
+    try:
+        with requests.post(OLLAMA_API_URL, json=build_payload(user_message, True), stream=True) as response:
+            response.raise_for_status()
+            for line in response.iter_lines():
+                if line:
+                    yield line + b"\n"
+    except requests.RequestException as e:
+        print(f"Error during Ollama API call: {str(e)}")
+        yield (json.dumps({"error": str(e), "done": True}) + "\n").encode()
+    except GeneratorExit:
+        print("Client stopped reading the stream")
+        raise
+
+@app.route('/chat', methods=['POST'])
+def chat():
+    # Get userMessage from form data or raw body
+    user_message = request.form.get('userMessage') or request.get_data(as_text=True).strip()
+
+    # Validate userMessage
+    if not user_message:
+        return Response("Error: userMessage cannot be empty", status=400, mimetype='text/plain')
+
+    # Print received request
+    print("\nReceived Request:")
+    print(f"userMessage: {user_message}")
+
+    # Clients that read the answer as it is generated ask for newline-delimited JSON
+    if 'application/x-ndjson' in request.headers.get('Accept', ''):
+        return Response(stream_classification(user_message), mimetype='application/x-ndjson')
+
+    json_response, raw_output = classify(user_message)
+    if json_response is not None:
+        return Response(json.dumps(json_response), mimetype='application/json')
         
     # Return plain text response if JSON parsing failed
     return Response(raw_output, mimetype='text/plain')
 
+@app.route('/chat/batch', methods=['POST'])
+def chat_batch():
+    """Classify a JSON array of task strings. Answers with an array in the same order:
+    a {"task", "category", "time"} object per input, or {"error": ...} where that input failed."""
+    user_messages = request.get_json(silent=True)
+    if not isinstance(user_messages, list) or not all(isinstance(m, str) for m in user_messages):
+        return Response("Error: body must be a JSON array of strings", status=400, mimetype='text/plain')
+    if len(user_messages) > MAX_BATCH_SIZE:
+        return Response(f"Error: at most {MAX_BATCH_SIZE} inputs per batch", status=413, mimetype='text/plain')
+
+    print(f"\nReceived batch of {len(user_messages)}")
+
+    def classify_item(user_message):
+        if not user_message.strip():
+            return {"error": "userMessage cannot be empty"}
+        json_response, _ = classify(user_message.strip())
+        return json_response if json_response is not None else {"error": "Model did not return a task"}
+
+    # Ollama runs as many of these at once as OLLAMA_NUM_PARALLEL allows and queues the rest
+    with ThreadPoolExecutor(max_workers=BATCH_WORKERS) as executor:
+        results = list(executor.map(classify_item, user_messages))
+
+    return Response(json.dumps(results), mimetype='application/json')
+
 if __name__ == '__main__':
     parser = argparse.ArgumentParser()
     parser.add_argument('--port', type=int, default=5000, help='Specify the port number')
@@ -0,0 +1,61 @@
+package com.example.smart_todo;
+
+/**
+ * Concurrency limit that follows how the backend copes, additive increase /
+ * multiplicative decrease. Every quick success raises the limit by 1/limit, about one
+ * more slot per round of requests; a failure or an answer slower than slowMs halves it.
+ */
+class AdaptiveLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long slowMs;
+
+    // Guarded by this
+    private double limit;
+    private int inFlight;
+
+    AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, long slowMs) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.slowMs = slowMs;
+    }
+
+    /**
+     * Take a slot if the limit allows another operation
+     */
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Give back a slot and adjust the limit to how the operation went
+     */
+    synchronized void release(long latencyMs, boolean success) {
+        inFlight--;
+        if (success && latencyMs < slowMs) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        } else {
+            limit = Math.max(minLimit, limit / 2);
+        }
+    }
+
+    /**
+     * Give back a slot that was never used
+     */
+    synchronized void cancel() {
+        inFlight--;
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+}
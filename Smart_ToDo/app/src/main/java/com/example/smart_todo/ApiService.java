@@ -1,12 +1,18 @@
 package com.example.smart_todo;
 
+import android.content.Context;
 import android.util.Log;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -15,20 +21,45 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSource;
 
 public class ApiService {
     private static final String TAG = "ApiService";
     private static final String DEFAULT_API_URL = "http://10.0.2.2:5000/chat"; // 10.0.2.2 is localhost from Android emulator
     private static final MediaType MEDIA_TYPE_TEXT = MediaType.parse("text/plain; charset=utf-8");
+    private static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    private static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json; charset=utf-8");
+    // Inputs per /chat/batch request, small enough that a failed batch costs little
+    private static final int BATCH_SIZE = 10;
+    // The model answers one prompt at a time; more requests would only queue on the server
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
     
     private OkHttpClient client;
     private String apiUrl;
+    private final ClassificationCache classificationCache;
+    // Requests sent and not yet answered, by normalised input; guarded by itself
+    private final Map<String, InFlight> inFlight = new HashMap<>();
     
     public ApiService() {
         this(DEFAULT_API_URL);
     }
     
+    /**
+     * An ApiService whose classification cache lives in memory only
+     */
     public ApiService(String serverUrl) {
+        this(serverUrl, new ClassificationCache());
+    }
+    
+    /**
+     * An ApiService whose classification cache also survives restarts
+     */
+    public ApiService(Context context, String serverUrl) {
+        this(serverUrl, ClassificationCache.getInstance(context));
+    }
+    
+    private ApiService(String serverUrl, ClassificationCache classificationCache) {
+        this.classificationCache = classificationCache;
         if (serverUrl == null || serverUrl.isEmpty()) {
             this.apiUrl = DEFAULT_API_URL;
         } else {
@@ -37,11 +68,17 @@ public class ApiService {
         
         Log.d(TAG, "ApiService initialized with URL: " + this.apiUrl);
         
-        client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        // One client for every ApiService, sharing its connection pool with MongoDBConfig
+        HttpTransport transport = HttpTransport.getInstance();
+        transport.configureHost(this.apiUrl, MAX_CONCURRENT_REQUESTS);
+        client = transport.getClient();
+    }
+    
+    /**
+     * Connect to the backend ahead of the first task, so it does not wait for the handshake
+     */
+    public void warmUp() {
+        HttpTransport.getInstance().warmUp(apiUrl);
     }
     
     public interface ApiCallback {
@@ -49,72 +86,305 @@ public class ApiService {
         void onFailure(String errorMessage);
     }
     
-    public void processTask(String userInput, ApiCallback callback) {
+    /**
+     * A processTask call that has not answered yet
+     */
+    public interface PendingTask {
+        /**
+         * Stop waiting; the callback is not called. The request itself is cancelled
+         * once nobody else is waiting for it either.
+         */
+        void cancel();
+    }
+    
+    /**
+     * Classify the input and build a task from it. Calls made while the same
+     * (normalised) input is already being classified share that request. The first
+     * caller receives the task and the others a copy of it with the same ID, so no two
+     * callers share a Task object and adding it twice keeps one task.
+     */
+    public PendingTask processTask(String userInput, ApiCallback callback) {
+        Task cached = classificationCache.get(userInput);
+        if (cached != null) {
+            Log.d(TAG, "Classification of \"" + userInput + "\" answered from cache");
+            callback.onSuccess(cached);
+            return () -> { };
+        }
+        
+        String key = ClassificationCache.normalise(userInput);
+        InFlight flight;
+        Call call;
+        synchronized (inFlight) {
+            flight = inFlight.get(key);
+            if (flight != null) {
+                flight.callbacks.add(callback);
+                Log.d(TAG, "Joining the request in flight for \"" + userInput + "\"");
+                InFlight joined = flight;
+                return () -> leave(key, joined, callback);
+            }
+            // Only the caller that sends the request builds one
+            Request request = new Request.Builder()
+                    .url(apiUrl)
+                    // A backend that can stream the model's answer sends it as it is generated
+                    .header("Accept", MEDIA_TYPE_NDJSON + ", application/json, text/plain")
+                    .post(RequestBody.create(userInput, MEDIA_TYPE_TEXT))
+                    .build();
+            call = client.newCall(request);
+            flight = new InFlight(call);
+            flight.callbacks.add(callback);
+            inFlight.put(key, flight);
+        }
+        
         // Extract original time information from user input before sending to API
         String timeFromInput = extractTimeFromInput(userInput);
+        InFlight sent = flight;
         
-        RequestBody body = RequestBody.create(userInput, MEDIA_TYPE_TEXT);
-        Request request = new Request.Builder()
-                .url(apiUrl)
-                .post(body)
-                .build();
-                
-        client.newCall(request).enqueue(new Callback() {
+        call.enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
+                List<ApiCallback> callbacks = finish(key, sent);
+                if (callbacks.isEmpty()) {
+                    Log.d(TAG, "Request for \"" + userInput + "\" cancelled");
+                    return;
+                }
                 Log.e(TAG, "API call failed", e);
-                callback.onFailure("Network error: " + e.getMessage());
+                for (ApiCallback waiting : callbacks) {
+                    waiting.onFailure("Network error: " + e.getMessage());
+                }
             }
             
             @Override
             public void onResponse(Call call, Response response) throws IOException {
                 if (response.isSuccessful()) {
-                    String responseBody = response.body().string();
+                    String responseBody;
+                    try {
+                        responseBody = readAnswer(call, response);
+                    } catch (IOException e) {
+                        // Release the waiters, or later calls for this input would join a dead request
+                        onFailure(call, e);
+                        return;
+                    } finally {
+                        response.close();
+                    }
                     Log.d(TAG, "API response: " + responseBody);
                     
+                    Task task;
                     // Check if response is JSON
                     if (responseBody.trim().startsWith("{")) {
                         try {
-                            Task task = parseJsonResponse(responseBody, userInput);
-                            
-                            // Override time if needed
-                            if (!timeFromInput.isEmpty() && task.getTime().equalsIgnoreCase("Anytime")) {
-                                task.setTime(timeFromInput);
-                                Log.d(TAG, "Overriding time with: " + timeFromInput);
-                            }
-                            
-                            callback.onSuccess(task);
+                            task = parseJsonResponse(responseBody, userInput);
                         } catch (JSONException e) {
                             Log.e(TAG, "JSON parsing error", e);
-                            Task task = parsePlainTextResponse(responseBody, userInput);
-                            
-                            // Override time if needed
-                            if (!timeFromInput.isEmpty() && task.getTime().equalsIgnoreCase("Anytime")) {
-                                task.setTime(timeFromInput);
-                                Log.d(TAG, "Overriding time with: " + timeFromInput);
-                            }
-                            
-                            callback.onSuccess(task);
+                            task = parsePlainTextResponse(responseBody, userInput);
                         }
                     } else {
                         // Treat as plain text
-                        Task task = parsePlainTextResponse(responseBody, userInput);
-                        
-                        // Override time if needed
-                        if (!timeFromInput.isEmpty() && task.getTime().equalsIgnoreCase("Anytime")) {
-                            task.setTime(timeFromInput);
-                            Log.d(TAG, "Overriding time with: " + timeFromInput);
-                        }
-                        
-                        callback.onSuccess(task);
+                        task = parsePlainTextResponse(responseBody, userInput);
+                    }
+                    
+                    applyTimeFromInput(task, timeFromInput);
+                    classificationCache.put(userInput, task);
+                    List<ApiCallback> callbacks = finish(key, sent);
+                    for (int i = 0; i < callbacks.size(); i++) {
+                        callbacks.get(i).onSuccess(i == 0 ? task : task.copy());
                     }
                 } else {
-                    callback.onFailure("Server error: " + response.code());
+                    // Closing the body frees the backend's concurrency slot
+                    response.close();
+                    for (ApiCallback waiting : finish(key, sent)) {
+                        waiting.onFailure("Server error: " + response.code());
+                    }
+                }
+            }
+        });
+        return () -> leave(key, sent, callback);
+    }
+    
+    /**
+     * The model's answer. A streamed answer is read line by line and cut off at the end
+     * of the first complete JSON object, since the task is known from then on; the call
+     * is cancelled so the backend stops generating the rest.
+     */
+    private String readAnswer(Call call, Response response) throws IOException {
+        String contentType = response.header("Content-Type");
+        if (contentType == null || !contentType.startsWith(MEDIA_TYPE_NDJSON)) {
+            return response.body().string();
+        }
+        long start = System.currentTimeMillis();
+        JsonObjectScanner scanner = new JsonObjectScanner();
+        BufferedSource source = response.body().source();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            JSONObject chunk;
+            try {
+                chunk = new JSONObject(line);
+            } catch (JSONException e) {
+                throw new IOException("Unreadable stream chunk: " + line, e);
+            }
+            if (chunk.has("error")) {
+                throw new IOException("Model failed: " + chunk.optString("error"));
+            }
+            if (scanner.append(chunk.optString("response", ""))) {
+                Log.d(TAG, "Answer complete after " + (System.currentTimeMillis() - start)
+                        + " ms, not waiting for the rest");
+                call.cancel();
+                return scanner.getObject();
+            }
+            if (chunk.optBoolean("done", false)) {
+                break;
+            }
+        }
+        // No JSON object in the answer; the plain text parser makes what it can of it
+        return scanner.getText().trim();
+    }
+    
+    /**
+     * Take a finished request out of the in-flight map and return who was waiting for it
+     */
+    private List<ApiCallback> finish(String key, InFlight flight) {
+        synchronized (inFlight) {
+            if (inFlight.get(key) == flight) {
+                inFlight.remove(key);
+            }
+            List<ApiCallback> callbacks = new ArrayList<>(flight.callbacks);
+            flight.callbacks.clear();
+            return callbacks;
+        }
+    }
+    
+    private void leave(String key, InFlight flight, ApiCallback callback) {
+        synchronized (inFlight) {
+            if (!flight.callbacks.remove(callback) || !flight.callbacks.isEmpty()) {
+                return;
+            }
+            if (inFlight.get(key) == flight) {
+                inFlight.remove(key);
+            }
+        }
+        flight.call.cancel();
+    }
+    
+    /**
+     * Told about each input of a processTasks call as soon as it is classified,
+     * possibly from several threads but never two calls at once
+     */
+    public interface BatchCallback {
+        /**
+         * @param index position of the input in the list
+         * @param classifiedLocally true when the backend failed this input and LocalTaskParser classified it
+         */
+        void onTask(int index, Task task, boolean classifiedLocally);
+        
+        /**
+         * Every input has had its onTask
+         */
+        void onComplete(int classifiedLocally);
+    }
+    
+    /**
+     * Classify many inputs in few round trips. Cached inputs are answered first; the rest
+     * go to /chat/batch in groups of BATCH_SIZE, at most MAX_CONCURRENT_REQUESTS groups at
+     * a time. Inputs the backend fails, alone or with their whole group, are classified
+     * by LocalTaskParser, so every input gets a task.
+     */
+    public void processTasks(List<String> userInputs, BatchCallback callback) {
+        BatchRun run = new BatchRun(userInputs, callback);
+        List<Integer> uncached = new ArrayList<>();
+        for (int i = 0; i < userInputs.size(); i++) {
+            Task cached = classificationCache.get(userInputs.get(i));
+            if (cached != null) {
+                run.deliver(i, cached, false);
+            } else {
+                uncached.add(i);
+            }
+        }
+        for (int start = 0; start < uncached.size(); start += BATCH_SIZE) {
+            run.pending.add(uncached.subList(start, Math.min(start + BATCH_SIZE, uncached.size())));
+        }
+        Log.d(TAG, "Classifying " + userInputs.size() + " inputs, " + uncached.size()
+                + " not cached, in " + run.pending.size() + " batches");
+        if (uncached.isEmpty()) {
+            run.finishIfDone();
+            return;
+        }
+        for (int i = 0; i < MAX_CONCURRENT_REQUESTS; i++) {
+            sendNextBatch(run);
+        }
+    }
+    
+    private void sendNextBatch(BatchRun run) {
+        List<Integer> indexes;
+        synchronized (run) {
+            indexes = run.pending.poll();
+        }
+        if (indexes == null) {
+            return;
+        }
+        JSONArray inputs = new JSONArray();
+        for (int index : indexes) {
+            inputs.put(run.userInputs.get(index));
+        }
+        Request request = new Request.Builder()
+                .url(getBatchUrl())
+                .post(RequestBody.create(inputs.toString(), MEDIA_TYPE_JSON))
+                .build();
+        
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Log.e(TAG, "Batch of " + indexes.size() + " failed", e);
+                deliverBatch(run, indexes, null);
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                JSONArray results = null;
+                try {
+                    if (response.isSuccessful()) {
+                        results = new JSONArray(response.body().string());
+                    } else {
+                        Log.e(TAG, "Batch of " + indexes.size() + " failed: " + response.code());
+                    }
+                } catch (IOException | JSONException e) {
+                    Log.e(TAG, "Unreadable batch response", e);
+                } finally {
+                    response.close();
                 }
+                deliverBatch(run, indexes, results);
             }
         });
     }
     
+    /**
+     * Hand out one batch's results, classifying locally what the backend did not, then
+     * send the next batch
+     */
+    private void deliverBatch(BatchRun run, List<Integer> indexes, JSONArray results) {
+        for (int i = 0; i < indexes.size(); i++) {
+            int index = indexes.get(i);
+            String userInput = run.userInputs.get(index);
+            // An item is an object with task, category and time, or one with an error
+            JSONObject result = results != null ? results.optJSONObject(i) : null;
+            if (result != null && !result.has("error") && result.has("task")) {
+                Task task = parseTaskObject(result, userInput);
+                applyTimeFromInput(task, extractTimeFromInput(userInput));
+                classificationCache.put(userInput, task);
+                run.deliver(index, task, false);
+            } else {
+                run.deliver(index, LocalTaskParser.parse(userInput), true);
+            }
+        }
+        run.finishIfDone();
+        sendNextBatch(run);
+    }
+    
+    private String getBatchUrl() {
+        return apiUrl.replaceAll("/+$", "") + "/batch";
+    }
+    
     private Task parseJsonResponse(String response, String userInput) throws JSONException {
         // Try to clean up the response if it contains extra text around the JSON
         try {
@@ -129,8 +399,10 @@ public class ApiService {
             // Continue with original response
         }
         
-        JSONObject jsonObject = new JSONObject(response);
-        
+        return parseTaskObject(new JSONObject(response), userInput);
+    }
+    
+    private Task parseTaskObject(JSONObject jsonObject, String userInput) {
         String taskName = jsonObject.optString("task", userInput);
         String category = jsonObject.optString("category", "Personal");
         String time = jsonObject.optString("time", "Anytime");
@@ -338,12 +610,28 @@ public class ApiService {
         return task;
     }
     
+    public ClassificationCache getClassificationCache() {
+        return classificationCache;
+    }
+    
     public String getApiUrl() {
         return apiUrl;
     }
     
     public void setApiUrl(String apiUrl) {
         this.apiUrl = apiUrl;
+        // The new host gets the same limit as the one set up in the constructor
+        HttpTransport.getInstance().configureHost(apiUrl, MAX_CONCURRENT_REQUESTS);
+    }
+    
+    /**
+     * Keep a time the user typed when the model did not find one
+     */
+    private void applyTimeFromInput(Task task, String timeFromInput) {
+        if (!timeFromInput.isEmpty() && task.getTime().equalsIgnoreCase("Anytime")) {
+            task.setTime(timeFromInput);
+            Log.d(TAG, "Overriding time with: " + timeFromInput);
+        }
     }
     
     // Extract time information directly from user input
@@ -386,4 +674,50 @@ public class ApiService {
         
         return "";
     }
-} 
\ No newline at end of file
+    
+    /**
+     * The progress of one processTasks call
+     */
+    private static class BatchRun {
+        final List<String> userInputs;
+        final BatchCallback callback;
+        // Guarded by this
+        final ArrayDeque<List<Integer>> pending = new ArrayDeque<>();
+        int delivered;
+        int classifiedLocally;
+        boolean completed;
+        
+        BatchRun(List<String> userInputs, BatchCallback callback) {
+            this.userInputs = new ArrayList<>(userInputs);
+            this.callback = callback;
+        }
+        
+        synchronized void deliver(int index, Task task, boolean local) {
+            delivered++;
+            if (local) {
+                classifiedLocally++;
+            }
+            callback.onTask(index, task, local);
+        }
+        
+        synchronized void finishIfDone() {
+            if (!completed && delivered == userInputs.size()) {
+                completed = true;
+                Log.d(TAG, "Classified " + delivered + " inputs, " + classifiedLocally + " locally");
+                callback.onComplete(classifiedLocally);
+            }
+        }
+    }
+    
+    /**
+     * One classification request and the callbacks waiting for it
+     */
+    private static class InFlight {
+        final Call call;
+        final List<ApiCallback> callbacks = new ArrayList<>();
+        
+        InFlight(Call call) {
+            this.call = call;
+        }
+    }
+}
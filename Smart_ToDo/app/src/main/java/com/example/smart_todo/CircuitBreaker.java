@@ -0,0 +1,90 @@
+package com.example.smart_todo;
+
+import android.util.Log;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending to a backend that keeps failing, so callers fail at once instead of
+ * each waiting out a timeout. After failureThreshold failures in a row the breaker
+ * opens and refuses everything for openMs; then one trial operation is let through,
+ * and its outcome closes the breaker again or reopens it.
+ */
+class CircuitBreaker {
+    private static final String TAG = "CircuitBreaker";
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMs;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    CircuitBreaker(String name, int failureThreshold, long openMs) {
+        this(name, failureThreshold, openMs, System::currentTimeMillis);
+    }
+
+    /**
+     * A breaker that reads the time in milliseconds from the given clock
+     */
+    CircuitBreaker(String name, int failureThreshold, long openMs, LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Whether an operation may be sent now; an allowed operation must report back
+     * through recordSuccess or recordFailure
+     */
+    synchronized boolean allowRequest() {
+        if (getState() == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state != State.CLOSED) {
+            setState(State.CLOSED);
+        }
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN
+                || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            openedAt = clock.getAsLong();
+            setState(State.OPEN);
+        }
+    }
+
+    /**
+     * The current state; an open breaker whose wait is over reads as half-open
+     */
+    synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMs) {
+            setState(State.HALF_OPEN);
+        }
+        return state;
+    }
+
+    private void setState(State newState) {
+        Log.d(TAG, name + " circuit " + state + " -> " + newState);
+        state = newState;
+    }
+}
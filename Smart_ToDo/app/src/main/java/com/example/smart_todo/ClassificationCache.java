@@ -0,0 +1,330 @@
+package com.example.smart_todo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Classifications returned by the /chat backend, keyed by the normalised input.
+ * The model answers the same text the same way, so "Buy milk" after "buy milk " is
+ * answered from memory instead of another round trip of several seconds. Entries live
+ * in an LRU in memory and, when the cache has a Context, in SharedPreferences so they
+ * survive a restart; both tiers expire entries after ENTRY_TTL_MS. SharedPreferences is
+ * only touched on a background thread: it is read once into an index of the stored
+ * entries, and until then lookups see the memory tier only.
+ */
+public class ClassificationCache {
+    private static final String TAG = "ClassificationCache";
+    private static final String PREFS_NAME = "classification_cache";
+
+    static final int MEMORY_ENTRIES = 64;
+    static final int DISK_ENTRIES = 256;
+    static final long ENTRY_TTL_MS = TimeUnit.DAYS.toMillis(7);
+
+    private static ClassificationCache instance;
+
+    // Both null when only the memory tier is used
+    private final SharedPreferences sharedPreferences;
+    private final Executor diskExecutor;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private final LinkedHashMap<String, Classification> memory =
+            new LinkedHashMap<String, Classification>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Classification> eldest) {
+                    return size() > MEMORY_ENTRIES;
+                }
+            };
+
+    // What is on disk, oldest first. Guarded by this; null until it has been read
+    private LinkedHashMap<String, Classification> diskIndex;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * A cache kept in memory only
+     */
+    ClassificationCache() {
+        this(null, null, System::currentTimeMillis);
+    }
+
+    private ClassificationCache(Context context) {
+        this(context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE),
+                Executors.newSingleThreadExecutor(), System::currentTimeMillis);
+    }
+
+    /**
+     * A cache that stores entries in the given preferences, touching them only on
+     * diskExecutor, which must run tasks one at a time in order, and reads the time
+     * in milliseconds from the given clock. Without preferences only memory is used.
+     */
+    ClassificationCache(SharedPreferences sharedPreferences, Executor diskExecutor, LongSupplier clock) {
+        this.sharedPreferences = sharedPreferences;
+        this.diskExecutor = sharedPreferences != null ? diskExecutor : null;
+        this.clock = clock;
+        if (this.diskExecutor != null) {
+            this.diskExecutor.execute(this::loadDiskIndex);
+        }
+    }
+
+    /**
+     * The cache backed by disk, shared by every ApiService given a Context
+     */
+    public static synchronized ClassificationCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ClassificationCache(context);
+        }
+        return instance;
+    }
+
+    /**
+     * The key an input is cached under: case, surrounding and repeated whitespace and
+     * trailing punctuation do not change what the model answers
+     */
+    static String normalise(String userInput) {
+        String key = userInput.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        return key.replaceAll("[\\s.!?,;]+$", "");
+    }
+
+    /**
+     * A new task classified as the input was before, or null if it is not cached
+     */
+    public Task get(String userInput) {
+        String key = normalise(userInput);
+        long now = clock.getAsLong();
+        Classification classification;
+        synchronized (this) {
+            classification = memory.get(key);
+            if (classification != null && classification.isExpired(now)) {
+                memory.remove(key);
+                classification = null;
+                expirations.incrementAndGet();
+            }
+        }
+        if (classification != null) {
+            memoryHits.incrementAndGet();
+            return classification.toTask();
+        }
+        synchronized (this) {
+            classification = diskIndex != null ? diskIndex.get(key) : null;
+            if (classification != null && classification.isExpired(now)) {
+                removeFromDisk(key);
+                classification = null;
+                expirations.incrementAndGet();
+            }
+            if (classification != null) {
+                memory.put(key, classification);
+            }
+        }
+        if (classification == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        return classification.toTask();
+    }
+
+    /**
+     * Remember how the backend classified the input
+     */
+    public void put(String userInput, Task task) {
+        String key = normalise(userInput);
+        Classification classification = new Classification(task, clock.getAsLong());
+        synchronized (this) {
+            memory.put(key, classification);
+        }
+        if (diskExecutor != null) {
+            diskExecutor.execute(() -> writeDisk(key, classification));
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            memory.clear();
+        }
+        if (diskExecutor != null) {
+            diskExecutor.execute(() -> {
+                synchronized (this) {
+                    diskIndex.clear();
+                }
+                sharedPreferences.edit().clear().apply();
+            });
+        }
+    }
+
+    public long getHitCount() {
+        return memoryHits.get() + diskHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + misses.get();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    public void logMetrics() {
+        Log.d(TAG, toString());
+    }
+
+    @Override
+    public String toString() {
+        int size;
+        synchronized (this) {
+            size = memory.size();
+        }
+        return memoryHits.get() + " memory hits, " + diskHits.get() + " disk hits, "
+                + misses.get() + " misses, " + expirations.get() + " expired, "
+                + String.format(Locale.US, "%.0f%% hit rate", getHitRate() * 100)
+                + ", " + size + " in memory";
+    }
+
+    /**
+     * Read every stored entry once, dropping expired and unreadable ones. Runs first on
+     * the disk executor, so the index is set before any write reaches it.
+     */
+    private void loadDiskIndex() {
+        long now = clock.getAsLong();
+        List<Map.Entry<String, Classification>> stored = new ArrayList<>();
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        int dropped = 0;
+        for (Map.Entry<String, ?> entry : sharedPreferences.getAll().entrySet()) {
+            Classification classification = entry.getValue() instanceof String
+                    ? Classification.fromJson((String) entry.getValue()) : null;
+            if (classification == null || classification.isExpired(now)) {
+                editor.remove(entry.getKey());
+                dropped++;
+            } else {
+                stored.add(new AbstractMap.SimpleEntry<>(entry.getKey(), classification));
+            }
+        }
+        if (dropped > 0) {
+            editor.apply();
+        }
+        stored.sort(Comparator.comparingLong(entry -> entry.getValue().storedAt));
+        LinkedHashMap<String, Classification> index = new LinkedHashMap<>();
+        for (Map.Entry<String, Classification> entry : stored) {
+            index.put(entry.getKey(), entry.getValue());
+        }
+        synchronized (this) {
+            diskIndex = index;
+        }
+        Log.d(TAG, index.size() + " classifications on disk, " + dropped + " dropped");
+    }
+
+    /**
+     * Called with the lock held once the index is loaded
+     */
+    private void removeFromDisk(String key) {
+        diskIndex.remove(key);
+        diskExecutor.execute(() -> sharedPreferences.edit().remove(key).apply());
+    }
+
+    /**
+     * Runs on the disk executor
+     */
+    private void writeDisk(String key, Classification classification) {
+        String json;
+        try {
+            json = classification.toJson();
+        } catch (JSONException e) {
+            Log.w(TAG, "Not saving classification of " + key, e);
+            return;
+        }
+        SharedPreferences.Editor editor = sharedPreferences.edit().putString(key, json);
+        synchronized (this) {
+            // Moved to the newest end; the oldest entries make room
+            diskIndex.remove(key);
+            diskIndex.put(key, classification);
+            while (diskIndex.size() > DISK_ENTRIES) {
+                String oldestKey = diskIndex.keySet().iterator().next();
+                diskIndex.remove(oldestKey);
+                editor.remove(oldestKey);
+            }
+        }
+        editor.apply();
+    }
+
+    /**
+     * What the backend said about one input; every hit becomes a new Task with its own id
+     */
+    private static class Classification {
+        final String name;
+        final String category;
+        final String time;
+        final int priority;
+        final boolean important;
+        final long storedAt;
+
+        Classification(Task task, long storedAt) {
+            this(task.getName(), task.getCategory(), task.getTime(),
+                    task.getPriority(), task.isImportant(), storedAt);
+        }
+
+        Classification(String name, String category, String time, int priority,
+                       boolean important, long storedAt) {
+            this.name = name;
+            this.category = category;
+            this.time = time;
+            this.priority = priority;
+            this.important = important;
+            this.storedAt = storedAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - storedAt > ENTRY_TTL_MS;
+        }
+
+        Task toTask() {
+            Task task = new Task(name, category, time);
+            task.setPriority(priority);
+            task.setImportant(important);
+            return task;
+        }
+
+        String toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("task", name);
+            json.put("category", category);
+            json.put("time", time);
+            json.put("priority", priority);
+            json.put("important", important);
+            json.put("storedAt", storedAt);
+            return json.toString();
+        }
+
+        static Classification fromJson(String value) {
+            try {
+                JSONObject json = new JSONObject(value);
+                return new Classification(json.getString("task"), json.getString("category"),
+                        json.getString("time"), json.getInt("priority"),
+                        json.getBoolean("important"), json.getLong("storedAt"));
+            } catch (JSONException e) {
+                return null;
+            }
+        }
+    }
+}
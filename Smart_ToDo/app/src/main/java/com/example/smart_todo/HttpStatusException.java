@@ -0,0 +1,27 @@
+package com.example.smart_todo;
+
+import java.io.IOException;
+
+/**
+ * A request the server answered with an error status
+ */
+class HttpStatusException extends IOException {
+    private final int code;
+
+    HttpStatusException(int code) {
+        super("HTTP error: " + code);
+        this.code = code;
+    }
+
+    int getCode() {
+        return code;
+    }
+
+    /**
+     * Whether the server turned down this request in particular rather than failing
+     * to serve it: a 4xx other than a timeout or throttling
+     */
+    boolean isClientError() {
+        return code >= 400 && code < 500 && code != 408 && code != 429;
+    }
+}
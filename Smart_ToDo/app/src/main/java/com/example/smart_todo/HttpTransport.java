@@ -0,0 +1,380 @@
+package com.example.smart_todo;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * The one HTTP client shared by ApiService and MongoDBConfig.
+ * All requests share one connection pool. Each host has its own limit on concurrent
+ * requests. Per-host metrics track latency, requests in flight and how often a pooled
+ * connection was reused.
+ */
+public class HttpTransport {
+    private static final String TAG = "HttpTransport";
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 5;
+    // How often a request waiting for a slot checks whether its call was cancelled
+    static final long SLOT_POLL_MS = 100;
+    // How long a request waits for a slot before it fails, the same as a connect timeout
+    private static final long SLOT_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+    // Tags warm-up requests, which are left out of the metrics
+    private static final String WARM_UP_TAG = "warm-up";
+
+    private static HttpTransport instance;
+
+    private final OkHttpClient client;
+    // Settings and metrics by host name
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+    private HttpTransport() {
+        client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .addInterceptor(this::limitConcurrency)
+                .eventListenerFactory(call -> WARM_UP_TAG.equals(call.request().tag(String.class))
+                        ? EventListener.NONE : new MetricsListener(hostOf(call.request())))
+                .build();
+    }
+
+    public static synchronized HttpTransport getInstance() {
+        if (instance == null) {
+            instance = new HttpTransport();
+        }
+        return instance;
+    }
+
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Set how many requests may run against the host of the URL at once. Can be called
+     * again at any time; requests in flight keep their slots and the host's metrics are kept.
+     */
+    public void configureHost(String url, int maxConcurrentRequests) {
+        host(hostName(url)).configure(maxConcurrentRequests);
+    }
+
+    /**
+     * Open a connection to the host of the URL in the background, so the first real
+     * request does not wait for DNS and the TLS handshake. Sends a GET for the root of
+     * the host, not the URL itself, which may only take POST; the request is not counted
+     * in the host's metrics.
+     */
+    public void warmUp(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            Log.w(TAG, "Not warming up invalid URL: " + url);
+            return;
+        }
+        Request request = new Request.Builder()
+                .url(httpUrl.resolve("/"))
+                .tag(String.class, WARM_UP_TAG)
+                .build();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Log.d(TAG, "Warm-up of " + request.url().host() + " failed: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                // Any answer leaves the connection in the pool
+                response.close();
+            }
+        });
+    }
+
+    /**
+     * Metrics for the host of the URL
+     */
+    public HostMetrics getMetrics(String url) {
+        return host(hostName(url)).metrics;
+    }
+
+    public void logMetrics() {
+        for (Map.Entry<String, Host> entry : hosts.entrySet()) {
+            Log.d(TAG, entry.getKey() + ": " + entry.getValue().metrics);
+        }
+    }
+
+    private static String hostName(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        return httpUrl != null ? httpUrl.host() : url;
+    }
+
+    private Host host(String name) {
+        return hosts.computeIfAbsent(name, key -> new Host(DEFAULT_MAX_CONCURRENT_REQUESTS));
+    }
+
+    private Host hostOf(Request request) {
+        return host(request.url().host());
+    }
+
+    /**
+     * Hold the request until the host has a free slot. Applies to synchronous calls too,
+     * which the OkHttp dispatcher's per-host limit does not cover. The wait is in short
+     * steps, so a call cancelled meanwhile fails at once instead of keeping its thread,
+     * and gives up after SLOT_TIMEOUT_MS. The slot is held until the response body is
+     * closed, since a streamed body keeps the connection busy long after the headers arrive.
+     */
+    private Response limitConcurrency(Interceptor.Chain chain) throws IOException {
+        Host host = hostOf(chain.request());
+        host.metrics.waiting.incrementAndGet();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SLOT_TIMEOUT_MS);
+            while (!host.tryAcquire(SLOT_POLL_MS)) {
+                if (chain.call().isCanceled()) {
+                    throw new IOException("Canceled");
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    throw new InterruptedIOException("Timed out waiting to send a request to "
+                            + chain.request().url().host());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to send a request");
+        } finally {
+            host.metrics.waiting.decrementAndGet();
+        }
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException | RuntimeException e) {
+            host.release();
+            throw e;
+        }
+        ResponseBody body = response.body();
+        if (body == null) {
+            host.release();
+            return response;
+        }
+        return response.newBuilder().body(new SlotReleasingBody(body, host)).build();
+    }
+
+    /**
+     * A response body that gives its host's slot back when it is closed, whether by
+     * reading it to the end with string() or by closing the response
+     */
+    private static class SlotReleasingBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        SlotReleasingBody(ResponseBody delegate, Host host) {
+            this.delegate = delegate;
+            AtomicBoolean released = new AtomicBoolean();
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (released.compareAndSet(false, true)) {
+                            host.release();
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+
+    /**
+     * Settings and metrics of one host. The concurrency limit is a counter rather than a
+     * Semaphore so it can be changed while requests hold slots.
+     */
+    private static class Host {
+        final HostMetrics metrics = new HostMetrics();
+        // Guarded by this
+        private int maxConcurrentRequests;
+        private int activeRequests;
+
+        Host(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+
+        synchronized void configure(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            // A raised limit may let waiting requests in
+            notifyAll();
+        }
+
+        /**
+         * Take a slot, waiting at most timeoutMs for one
+         * @return false if none was free in time
+         */
+        synchronized boolean tryAcquire(long timeoutMs) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (activeRequests >= maxConcurrentRequests) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return false;
+                }
+                wait(remainingMs);
+            }
+            activeRequests++;
+            return true;
+        }
+
+        synchronized void release() {
+            activeRequests--;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Request counts and timings for one host
+     */
+    public static class HostMetrics {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalLatencyMs = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicLong newConnections = new AtomicLong();
+        private final AtomicLong reusedConnections = new AtomicLong();
+
+        public long getRequestCount() {
+            return requests.get();
+        }
+
+        public long getFailureCount() {
+            return failures.get();
+        }
+
+        public double getAverageLatencyMs() {
+            long count = requests.get();
+            return count > 0 ? (double) totalLatencyMs.get() / count : 0;
+        }
+
+        /**
+         * Requests sent and not yet finished
+         */
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * Requests waiting for the host's concurrency limit
+         */
+        public int getWaiting() {
+            return waiting.get();
+        }
+
+        /**
+         * Share of requests that found a pooled connection instead of opening one
+         */
+        public double getConnectionReuseRate() {
+            long reused = reusedConnections.get();
+            long total = reused + newConnections.get();
+            return total > 0 ? (double) reused / total : 0;
+        }
+
+        @Override
+        public String toString() {
+            return requests.get() + " requests, " + failures.get() + " failed, "
+                    + String.format(Locale.US, "%.0f ms average, %.0f%% connections reused",
+                    getAverageLatencyMs(), getConnectionReuseRate() * 100)
+                    + ", " + inFlight.get() + " in flight, " + waiting.get() + " waiting";
+        }
+    }
+
+    /**
+     * Feeds one call's events into the metrics of its host
+     */
+    private static class MetricsListener extends EventListener {
+        private final HostMetrics metrics;
+        private long startNanos;
+        private boolean connecting;
+
+        MetricsListener(Host host) {
+            this.metrics = host.metrics;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            startNanos = System.nanoTime();
+            metrics.inFlight.incrementAndGet();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            connecting = true;
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            if (connecting) {
+                metrics.newConnections.incrementAndGet();
+            } else {
+                metrics.reusedConnections.incrementAndGet();
+            }
+            connecting = false;
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            finish(false);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            finish(true);
+        }
+
+        private void finish(boolean failed) {
+            metrics.inFlight.decrementAndGet();
+            metrics.requests.incrementAndGet();
+            if (failed) {
+                metrics.failures.incrementAndGet();
+            }
+            metrics.totalLatencyMs.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+    }
+}
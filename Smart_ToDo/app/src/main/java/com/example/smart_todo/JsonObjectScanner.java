@@ -0,0 +1,68 @@
+package com.example.smart_todo;
+
+/**
+ * Finds the first complete JSON object in text that arrives a piece at a time, such as
+ * a model's answer streamed token by token. It tracks nesting and string state, so
+ * braces inside quoted values do not end the object early.
+ */
+class JsonObjectScanner {
+    private final StringBuilder text = new StringBuilder();
+    private int objectStart = -1;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private String object;
+
+    /**
+     * Add the next piece of text
+     * @return true once a complete object has been seen
+     */
+    boolean append(String fragment) {
+        if (object != null) {
+            return true;
+        }
+        int scanFrom = text.length();
+        text.append(fragment);
+        for (int i = scanFrom; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (objectStart < 0) {
+                if (c == '{') {
+                    objectStart = i;
+                    depth = 1;
+                }
+                continue;
+            }
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                object = text.substring(objectStart, i + 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The first complete object, or null if it has not arrived yet
+     */
+    String getObject() {
+        return object;
+    }
+
+    /**
+     * Everything appended so far
+     */
+    String getText() {
+        return text.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.smart_todo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Reader for the task list as released versions stored it: one JSON array string in
+ * SharedPreferences. SqliteTaskStore streams it in once on first launch and then clears it.
+ */
+class LegacyTaskPreferences {
+    private static final String TAG = "LegacyTaskPreferences";
+
+    private static final String PREF_NAME = "smart_todo_prefs";
+    private static final String KEY_TASKS = "tasks";
+    private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    private final SharedPreferences sharedPreferences;
+
+    LegacyTaskPreferences(Context context) {
+        sharedPreferences = context.getApplicationContext()
+                .getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Hand out the stored tasks one at a time, in list order.
+     * The array is decoded element by element instead of as a JSONArray tree.
+     * @return number of tasks delivered
+     * @throws IllegalStateException if the stored list cannot be read to the end; some
+     *         tasks may have been delivered by then
+     */
+    int streamTasks(TaskStore.TaskStreamCallback callback) {
+        String tasksJson = sharedPreferences.getString(KEY_TASKS, null);
+        if (tasksJson == null) {
+            return 0;
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN, Locale.getDefault());
+        int count = 0;
+        try (JsonReader reader = new JsonReader(new StringReader(tasksJson))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                callback.onTask(readTask(reader, dateFormat));
+                count++;
+            }
+            reader.endArray();
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Error reading legacy tasks after " + count + " of them", e);
+            throw new IllegalStateException("Unreadable legacy task list", e);
+        }
+        Log.d(TAG, "Read " + count + " tasks from SharedPreferences");
+        return count;
+    }
+
+    /**
+     * Remove the stored list once it has been imported
+     */
+    void clear() {
+        sharedPreferences.edit().remove(KEY_TASKS).apply();
+    }
+
+    private static Task readTask(JsonReader reader, SimpleDateFormat dateFormat) throws IOException {
+        // The ID and creation time can come after the other fields, so hold everything until the end
+        TaskId id = null;
+        Date createdAt = null;
+        String taskName = null;
+        String description = null;
+        String category = null;
+        String time = null;
+        boolean completed = false;
+        boolean important = false;
+        int priority = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    id = TaskId.fromString(reader.nextString());
+                    break;
+                case "name":
+                    taskName = reader.nextString();
+                    break;
+                case "description":
+                    description = reader.nextString();
+                    break;
+                case "category":
+                    category = reader.nextString();
+                    break;
+                case "time":
+                    time = reader.nextString();
+                    break;
+                case "createdAt":
+                    createdAt = parseDate(reader.nextString(), dateFormat);
+                    break;
+                case "completed":
+                    completed = reader.nextBoolean();
+                    break;
+                case "important":
+                    important = reader.nextBoolean();
+                    break;
+                case "priority":
+                    priority = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        Task task = Task.restore(id, createdAt);
+        task.setName(taskName);
+        if (description != null) {
+            task.setDescription(description);
+        }
+        task.setCategory(category);
+        task.setTime(time);
+        task.setCompleted(completed);
+        task.setImportant(important);
+        task.setPriority(priority);
+        task.clearDirtyFields();
+        return task;
+    }
+
+    private static Date parseDate(String value, SimpleDateFormat dateFormat) {
+        try {
+            return dateFormat.parse(value);
+        } catch (ParseException e) {
+            Log.w(TAG, "Unrecognised createdAt value: " + value);
+            return null;
+        }
+    }
+}
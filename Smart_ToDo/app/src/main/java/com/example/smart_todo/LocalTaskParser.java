@@ -0,0 +1,69 @@
+package com.example.smart_todo;
+
+/**
+ * Classifies task input on the device when the backend cannot
+ * Feature 2 fallback: Local smart sorting implementation
+ */
+public class LocalTaskParser {
+    
+    /**
+     * Build a task from the input alone, using keywords for its category, time and priority
+     */
+    public static Task parse(String userInput) {
+        String lowerInput = userInput.toLowerCase();
+        String category = "Personal"; // Default
+        String time = "Anytime"; // Default
+        int priority = 0;
+        boolean important = false;
+        
+        // Smart categorization - Feature 2 implementation
+        if (lowerInput.contains("work") || lowerInput.contains("meeting") || 
+            lowerInput.contains("office") || lowerInput.contains("client") ||
+            lowerInput.contains("project") || lowerInput.contains("report")) {
+            category = "Work";
+            priority = 1;
+        } else if (lowerInput.contains("study") || lowerInput.contains("homework") || 
+                   lowerInput.contains("assignment") || lowerInput.contains("exam") ||
+                   lowerInput.contains("class") || lowerInput.contains("learn")) {
+            category = "Study";
+            priority = 1;
+        } else if (lowerInput.contains("buy") || lowerInput.contains("shop") || 
+                   lowerInput.contains("purchase") || lowerInput.contains("groceries") ||
+                   lowerInput.contains("store") || lowerInput.contains("market")) {
+            category = "Shopping";
+        } else if (lowerInput.contains("exercise") || lowerInput.contains("doctor") || 
+                   lowerInput.contains("health") || lowerInput.contains("medicine") ||
+                   lowerInput.contains("hospital") || lowerInput.contains("gym")) {
+            category = "Health";
+            priority = 1;
+        }
+        
+        // Time extraction
+        if (lowerInput.contains("today")) {
+            time = "Today";
+            priority = Math.max(priority, 1);
+        } else if (lowerInput.contains("tomorrow")) {
+            time = "Tomorrow";
+            priority = Math.max(priority, 1);
+        } else if (lowerInput.contains("morning")) {
+            time = "Morning";
+        } else if (lowerInput.contains("afternoon")) {
+            time = "Afternoon";
+        } else if (lowerInput.contains("evening")) {
+            time = "Evening";
+        }
+        
+        // Priority detection
+        if (lowerInput.contains("important") || lowerInput.contains("urgent") || 
+            lowerInput.contains("priority") || lowerInput.contains("asap")) {
+            important = true;
+            priority = 2;
+        }
+        
+        Task task = new Task(userInput, category, time);
+        task.setPriority(priority);
+        task.setImportant(important);
+        
+        return task;
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.smart_todo;
 
+import android.content.Context;
 import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.os.Bundle;
 import android.speech.RecognizerIntent;
 import android.view.View;
@@ -22,8 +25,11 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import androidx.appcompat.app.AppCompatDelegate;
 
@@ -46,6 +52,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
     private static final int SPEECH_REQUEST_CODE = 100;
     private static final int PERMISSION_REQUEST_RECORD_AUDIO = 200;
     private static final String TAG = "MainActivity";
+    private static final long SYNC_INTERVAL_MS = 5 * 60 * 1000;
     
     private Toolbar toolbar;
     private TextInputEditText taskInputEditText;
@@ -54,14 +61,13 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
     private View progressBar;
     private BottomNavigationView bottomNav;
     
-    public List<Task> taskList;
     private TaskAdapter taskAdapter;
     private ApiService apiService;
-    private TaskDatabase taskDatabase;
+    private TaskRepository taskRepository;
     
     // MongoDB manager
     private MongoDBTaskManager mongoDBTaskManager;
-    private Handler mainHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
     // Fragments
     private AllTasksFragment allTasksFragment;
@@ -69,6 +75,45 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
     private ImportantTasksFragment importantTasksFragment;
     
     private Fragment activeFragment;
+    
+    // Normalised inputs sent for classification and not yet added; used on the main thread only
+    private final Set<String> pendingInputs = new HashSet<>();
+    
+    // Checks again whether MongoDB can be reached as soon as a network is back
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(Network network) {
+            MongoHealthProbe healthProbe = MongoHealthProbe.getInstance();
+            healthProbe.invalidate();
+            healthProbe.checkAsync();
+        }
+    };
+    private boolean networkCallbackRegistered;
+    
+    // Whether the last known state of MongoDB was unreachable
+    private boolean mongoOffline;
+    
+    private final MongoHealthProbe.HealthListener healthListener = online -> mainHandler.post(() -> {
+        if (online) {
+            Toast.makeText(this, "MongoDB connected successfully", Toast.LENGTH_SHORT).show();
+            if (mongoOffline) {
+                // Catch up on what changed while offline
+                syncWithMongoDB();
+            }
+        } else {
+            Toast.makeText(this, "MongoDB connection failed - using local storage", Toast.LENGTH_SHORT).show();
+        }
+        mongoOffline = !online;
+    });
+    
+    // Pulls changes made on other devices while the app is in the foreground
+    private final Runnable periodicSync = new Runnable() {
+        @Override
+        public void run() {
+            syncWithMongoDB();
+            mainHandler.postDelayed(this, SYNC_INTERVAL_MS);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -101,17 +146,16 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
         // Initialize MongoDB
         initializeMongoDB();
         
-        // Initialize database
-        taskDatabase = new TaskDatabase(this);
+        // Shared in-memory task list, backed by the local database and
+        // kept in sync with MongoDB below
+        taskRepository = TaskRepository.getInstance(this);
         
-        // Initialize empty task list first
-        taskList = new ArrayList<>();
-        
-        // Load tasks from MongoDB first, then fallback to local storage
+        // Load tasks from local storage, then fetch what changed in MongoDB
         loadTasksFromMongoDB();
         
         // 使用默认URL初始化API服务
-        apiService = new ApiService("http://10.0.2.2:5000/chat");
+        apiService = new ApiService(this, "http://10.0.2.2:5000/chat");
+        apiService.warmUp();
         
         // Initialize fragments
         initFragments();
@@ -137,22 +181,22 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
             MongoDBConfig.initialize();
             
             // Initialize MongoDB task manager
-            mongoDBTaskManager = MongoDBTaskManager.getInstance();
+            mongoDBTaskManager = MongoDBTaskManager.getInstance(this);
             
-            // Initialize main thread handler for UI updates
-            mainHandler = new Handler(Looper.getMainLooper());
+            ConnectivityManager connectivityManager =
+                    (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (connectivityManager != null) {
+                connectivityManager.registerDefaultNetworkCallback(networkCallback);
+                networkCallbackRegistered = true;
+            }
             
-            // Test MongoDB connection in background
-            new Thread(() -> {
-                boolean connectionTest = MongoDBConfig.testConnection();
-                mainHandler.post(() -> {
-                    if (connectionTest) {
-                        Toast.makeText(this, "MongoDB connected successfully", Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(this, "MongoDB connection failed - using local storage", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            }).start();
+            // No separate connection test: the first sync request below reports
+            // whether MongoDB can be reached
+            if (MongoDBConfig.isConfigured()) {
+                MongoHealthProbe.getInstance().addListener(healthListener);
+            } else {
+                Toast.makeText(this, "MongoDB not configured - using local storage", Toast.LENGTH_SHORT).show();
+            }
             
         } catch (Exception e) {
             android.util.Log.e(TAG, "Failed to initialize MongoDB", e);
@@ -161,49 +205,50 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
     }
     
     /**
-     * Load tasks from MongoDB
+     * Load tasks from local storage, then bring them up to date with MongoDB
      */
     private void loadTasksFromMongoDB() {
-        if (mongoDBTaskManager != null) {
-            mongoDBTaskManager.getAllTasks(new MongoDBTaskManager.TaskListCallback() {
-                @Override
-                public void onSuccess(List<Task> tasks) {
-                    mainHandler.post(() -> {
-                        taskList.clear();
-                        taskList.addAll(tasks);
-                        
-                        // Sort tasks (uncompleted first)
-                        java.util.Collections.sort(taskList, (task1, task2) -> {
-                            if (task1.isCompleted() && !task2.isCompleted()) {
-                                return 1;
-                            } else if (!task1.isCompleted() && task2.isCompleted()) {
-                                return -1;
-                            }
-                            return 0;
-                        });
-                        
-                        android.util.Log.d(TAG, "Loaded " + tasks.size() + " tasks from MongoDB");
-                        refreshFragments();
-                    });
-                }
-                
-                @Override
-                public void onError(String error) {
-                    android.util.Log.e(TAG, "Failed to load tasks from MongoDB: " + error);
-                    mainHandler.post(() -> {
-                        // Fallback to local storage
-                        List<Task> localTasks = taskDatabase.loadTasks();
-                        taskList.clear();
-                        taskList.addAll(localTasks);
-                        refreshFragments();
-                    });
-                }
-            });
-        } else {
-            // Fallback to local storage
-            List<Task> localTasks = taskDatabase.loadTasks();
-            taskList.addAll(localTasks);
+        taskRepository.loadFromStorage();
+        syncWithMongoDB();
+    }
+    
+    /**
+     * Fetch only the tasks changed on the server since the last sync and merge them in
+     */
+    private void syncWithMongoDB() {
+        if (mongoDBTaskManager == null || !MongoDBConfig.isConfigured()) {
+            return;
         }
+        MongoHealthProbe healthProbe = MongoHealthProbe.getInstance();
+        if (healthProbe.isKnownOffline()) {
+            // A cheap probe instead; the health listener syncs once the server answers
+            healthProbe.checkAsync();
+            return;
+        }
+        MongoSyncState syncState = MongoSyncState.getInstance(this);
+        mongoDBTaskManager.getChangesSince(syncState.getWatermark(), new MongoDBTaskManager.TaskChangesCallback() {
+            @Override
+            public void onPage(MongoDBTaskManager.TaskChanges changes) {
+                // Merge once local storage is loaded, so the newer copy of each task wins;
+                // each page shows up as soon as it arrives. Tasks deleted here whose delete
+                // has not reached the server yet stay deleted.
+                mainHandler.post(() -> taskRepository.whenLoaded(() ->
+                        taskRepository.mergeRemoteChanges(
+                                mongoDBTaskManager.withoutPendingDeletes(changes.getTasks()),
+                                changes.getDeletedTasks())));
+            }
+            
+            @Override
+            public void onComplete(long watermark) {
+                // Queued behind the page merges, so it is only saved once they are applied
+                mainHandler.post(() -> taskRepository.whenLoaded(() -> syncState.setWatermark(watermark)));
+            }
+            
+            @Override
+            public void onError(String error) {
+                android.util.Log.e(TAG, "Failed to sync tasks with MongoDB: " + error);
+            }
+        });
     }
     
     private void initFragments() {
@@ -253,11 +298,21 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
         }
     }
     
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mainHandler.postDelayed(periodicSync, SYNC_INTERVAL_MS);
+    }
+    
     @Override
     protected void onPause() {
         super.onPause();
-        // Save tasks when app is paused
-        taskDatabase.saveTasks(taskList);
+        mainHandler.removeCallbacks(periodicSync);
+        // Make sure recently queued changes reach storage before the process can be killed
+        taskRepository.flush();
+        if (mongoDBTaskManager != null) {
+            mongoDBTaskManager.flushWrites();
+        }
     }
     
     /**
@@ -397,8 +452,18 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
             return;
         }
         
+        // Several lines, e.g. a pasted list, become one task each
+        List<String> lines = new ArrayList<>();
+        for (String line : userInput.split("\\n")) {
+            if (!line.trim().isEmpty()) {
+                lines.add(line.trim());
+            }
+        }
+        
         // Check if input is a question/query or a task creation request
-        if (isUserQuery(userInput)) {
+        if (lines.size() > 1) {
+            handleTaskImport(lines);
+        } else if (isUserQuery(userInput)) {
             // Handle as query - Feature 4: Ask questions
             handleUserQuery(userInput);
         } else {
@@ -451,18 +516,10 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
      * Handle user queries - Feature 4: Ask questions implementation
      */
     private void handleUserQuery(String userInput) {
-        showLoading(true);
-        
-        // Process query in background thread to avoid UI blocking
-        new Thread(() -> {
-            String response = TaskQueryService.processQuery(userInput, taskList);
-            
-            runOnUiThread(() -> {
-                showLoading(false);
-                showQueryResponse(response);
-                taskInputEditText.setText("");
-            });
-        }).start();
+        // Answered from the in-memory task list, which is quick enough for the UI thread
+        String response = TaskQueryService.processQuery(userInput, taskRepository);
+        showQueryResponse(response);
+        taskInputEditText.setText("");
     }
     
     /**
@@ -474,13 +531,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
         builder.setMessage(response);
         
         // Add suggestions button if there are pending tasks
-        boolean hasPendingTasks = false;
-        for (Task task : taskList) {
-            if (!task.isCompleted()) {
-                hasPendingTasks = true;
-                break;
-            }
-        }
+        boolean hasPendingTasks = taskRepository.countTasks(TaskFilter.pending()) > 0;
         
         if (hasPendingTasks) {
             builder.setPositiveButton("Show Suggestions", (dialog, which) -> {
@@ -497,7 +548,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
      */
     private void showTaskSuggestions() {
         List<TaskSuggestionService.TaskSuggestion> suggestions = 
-                TaskSuggestionService.getTaskSuggestions(taskList, 5);
+                TaskSuggestionService.getTaskSuggestions(taskRepository.getTasks(TaskFilter.pending()), 5);
         
         if (suggestions.isEmpty()) {
             Toast.makeText(this, "No task suggestions available", Toast.LENGTH_SHORT).show();
@@ -534,13 +585,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
         // You could add additional "started" state to Task class if needed
         // For now, we'll just show a confirmation and highlight the task
         
-        // Find the task in list and show it to user
-        for (int i = 0; i < taskList.size(); i++) {
-            if (taskList.get(i).getId().equals(task.getId())) {
-                // You could implement highlighting or other visual feedback here
-                break;
-            }
-        }
+        // The task can be looked up with taskRepository.indexOf(task.getTaskId()) to highlight it
     }
     
     /**
@@ -548,6 +593,12 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
      * Feature 1: Natural task input & Feature 2: Smart sorting
      */
     private void handleTaskCreation(String userInput) {
+        // A second submission of the same text, e.g. Enter pressed twice, would add the task twice
+        String inputKey = ClassificationCache.normalise(userInput);
+        if (!pendingInputs.add(inputKey)) {
+            android.util.Log.d(TAG, "Ignoring repeated submission of \"" + userInput + "\"");
+            return;
+        }
         showLoading(true);
         
         // Send to API service for processing - Feature 1 & 2 implementation
@@ -555,16 +606,11 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
             @Override
             public void onSuccess(Task task) {
                 runOnUiThread(() -> {
+                    pendingInputs.remove(inputKey);
                     showLoading(false);
                     addTaskToList(task);
                     taskInputEditText.setText("");
                     
-                    // Save tasks to persistent storage
-                    taskDatabase.saveTasks(taskList);
-                    
-                    // Refresh fragments
-                    refreshFragments();
-                    
                     // Show suggestion if this is an important task
                     if (task.isImportant() || task.getPriority() > 0) {
                         showQuickSuggestion(task);
@@ -575,84 +621,47 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
             @Override
             public void onFailure(String errorMessage) {
                 runOnUiThread(() -> {
+                    pendingInputs.remove(inputKey);
                     showLoading(false);
                     Toast.makeText(MainActivity.this, errorMessage, Toast.LENGTH_SHORT).show();
                     
                     // Add basic task anyway with smart categorization fallback
-                    Task basicTask = createBasicTaskWithSmartCategorization(userInput);
+                    Task basicTask = LocalTaskParser.parse(userInput);
                     addTaskToList(basicTask);
                     taskInputEditText.setText("");
-                    
-                    // Save tasks to persistent storage
-                    taskDatabase.saveTasks(taskList);
-                    
-                    // Refresh fragments
-                    refreshFragments();
                 });
             }
         });
     }
     
     /**
-     * Create basic task with local smart categorization when API fails
-     * Feature 2 fallback: Local smart sorting implementation
+     * Create a task from every line, classified a batch at a time
      */
-    private Task createBasicTaskWithSmartCategorization(String userInput) {
-        String lowerInput = userInput.toLowerCase();
-        String category = "Personal"; // Default
-        String time = "Anytime"; // Default
-        int priority = 0;
-        boolean important = false;
-        
-        // Smart categorization - Feature 2 implementation
-        if (lowerInput.contains("work") || lowerInput.contains("meeting") || 
-            lowerInput.contains("office") || lowerInput.contains("client") ||
-            lowerInput.contains("project") || lowerInput.contains("report")) {
-            category = "Work";
-            priority = 1;
-        } else if (lowerInput.contains("study") || lowerInput.contains("homework") || 
-                   lowerInput.contains("assignment") || lowerInput.contains("exam") ||
-                   lowerInput.contains("class") || lowerInput.contains("learn")) {
-            category = "Study";
-            priority = 1;
-        } else if (lowerInput.contains("buy") || lowerInput.contains("shop") || 
-                   lowerInput.contains("purchase") || lowerInput.contains("groceries") ||
-                   lowerInput.contains("store") || lowerInput.contains("market")) {
-            category = "Shopping";
-        } else if (lowerInput.contains("exercise") || lowerInput.contains("doctor") || 
-                   lowerInput.contains("health") || lowerInput.contains("medicine") ||
-                   lowerInput.contains("hospital") || lowerInput.contains("gym")) {
-            category = "Health";
-            priority = 1;
-        }
-        
-        // Time extraction
-        if (lowerInput.contains("today")) {
-            time = "Today";
-            priority = Math.max(priority, 1);
-        } else if (lowerInput.contains("tomorrow")) {
-            time = "Tomorrow";
-            priority = Math.max(priority, 1);
-        } else if (lowerInput.contains("morning")) {
-            time = "Morning";
-        } else if (lowerInput.contains("afternoon")) {
-            time = "Afternoon";
-        } else if (lowerInput.contains("evening")) {
-            time = "Evening";
-        }
-        
-        // Priority detection
-        if (lowerInput.contains("important") || lowerInput.contains("urgent") || 
-            lowerInput.contains("priority") || lowerInput.contains("asap")) {
-            important = true;
-            priority = 2;
-        }
-        
-        Task task = new Task(userInput, category, time);
-        task.setPriority(priority);
-        task.setImportant(important);
+    private void handleTaskImport(List<String> lines) {
+        showLoading(true);
         
-        return task;
+        apiService.processTasks(lines, new ApiService.BatchCallback() {
+            @Override
+            public void onTask(int index, Task task, boolean classifiedLocally) {
+                runOnUiThread(() -> {
+                    taskRepository.addTask(task);
+                    saveToMongoDB(task);
+                });
+            }
+            
+            @Override
+            public void onComplete(int classifiedLocally) {
+                runOnUiThread(() -> {
+                    showLoading(false);
+                    taskInputEditText.setText("");
+                    String message = "Added " + lines.size() + " tasks";
+                    if (classifiedLocally > 0) {
+                        message += " (" + classifiedLocally + " sorted offline)";
+                    }
+                    Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
     }
     
     /**
@@ -660,9 +669,9 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
      * Feature 3: Contextual suggestions
      */
     private void showQuickSuggestion(Task newTask) {
-        Task nextSuggestion = TaskSuggestionService.getNextTaskSuggestion(taskList);
+        Task nextSuggestion = TaskSuggestionService.getNextTaskSuggestion(taskRepository.getTasks(TaskFilter.pending()));
         
-        if (nextSuggestion != null && !nextSuggestion.getId().equals(newTask.getId())) {
+        if (nextSuggestion != null && !nextSuggestion.getTaskId().equals(newTask.getTaskId())) {
             String message = String.format("Task added! Next suggested task: '%s' (%s)", 
                     nextSuggestion.getName(), nextSuggestion.getCategory());
             
@@ -671,20 +680,22 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
     }
     
     private void addTaskToList(Task task) {
-        // Add the task to the list (uncompleted tasks should be at the beginning)
-        if (task.isCompleted()) {
-            // Find the position after the last uncompleted task
-            int insertPosition = 0;
-            while (insertPosition < taskList.size() && !taskList.get(insertPosition).isCompleted()) {
-                insertPosition++;
-            }
-            taskList.add(insertPosition, task);
-        } else {
-            // Add to the beginning for uncompleted tasks
-            taskList.add(0, task);
+        // Callers that shared one request get copies with the same ID; the task is added once
+        if (taskRepository.getTask(task.getTaskId()) != null) {
+            android.util.Log.d(TAG, "Task already added: " + task.getTaskId());
+            return;
         }
         
-        // Save to MongoDB
+        // Add the task to the shared list and local storage; the fragments update themselves
+        taskRepository.addTask(task);
+        saveToMongoDB(task);
+        
+        // Show toast with task information
+        String message = "Added: " + task.getName() + " (" + task.getCategory() + ", " + task.getTime() + ")";
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+    }
+    
+    private void saveToMongoDB(Task task) {
         if (mongoDBTaskManager != null) {
             mongoDBTaskManager.saveTask(task, new MongoDBTaskManager.TaskOperationCallback() {
                 @Override
@@ -695,44 +706,11 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
                 @Override
                 public void onError(String error) {
                     android.util.Log.e(TAG, "Failed to save task to MongoDB: " + error);
-                    // Task is already in local list, so we can continue
+                    // Task is already in local list; writes that fail for a reason
+                    // that can pass stay queued and are retried
                 }
             });
         }
-        
-        // Show toast with task information
-        String message = "Added: " + task.getName() + " (" + task.getCategory() + ", " + task.getTime() + ")";
-        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
-    }
-    
-    private void refreshFragments() {
-        if (allTasksFragment != null) {
-            allTasksFragment.refreshTasks();
-        }
-        if (todayTasksFragment != null) {
-            todayTasksFragment.refreshTasks();
-        }
-        if (importantTasksFragment != null) {
-            importantTasksFragment.refreshTasks();
-        }
-    }
-    
-    public void refreshTasks() {
-        // Reload tasks from database
-        taskList = taskDatabase.loadTasks();
-        
-        // Apply sorting for completed tasks
-        java.util.Collections.sort(taskList, (task1, task2) -> {
-            if (task1.isCompleted() && !task2.isCompleted()) {
-                return 1;
-            } else if (!task1.isCompleted() && task2.isCompleted()) {
-                return -1;
-            }
-            return 0;
-        });
-        
-        // Refresh all fragments to ensure consistency
-        refreshFragments();
     }
     
     private void showLoading(boolean show) {
@@ -742,32 +720,28 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
     }
     
     @Override
-    public void onTaskClick(int position) {
-        // Safety check: ensure position is valid and taskList is not empty
-        if (taskList == null || position < 0 || position >= taskList.size()) {
-            android.util.Log.e(TAG, "Invalid position for task click: " + position + ", taskList size: " + 
-                    (taskList != null ? taskList.size() : "null"));
+    public void onTaskClick(TaskId taskId) {
+        Task task = taskRepository.getTask(taskId);
+        if (task == null) {
+            android.util.Log.e(TAG, "Unknown task for task click: " + taskId);
             return;
         }
         
-        Task task = taskList.get(position);
         Toast.makeText(this, "Task: " + task.getName(), Toast.LENGTH_SHORT).show();
     }
     
     @Override
-    public void onCheckBoxClick(int position, boolean isChecked) {
-        // Safety check: ensure position is valid and taskList is not empty
-        if (taskList == null || position < 0 || position >= taskList.size()) {
-            android.util.Log.e(TAG, "Invalid position for checkbox: " + position + ", taskList size: " + 
-                    (taskList != null ? taskList.size() : "null"));
+    public void onCheckBoxClick(TaskId taskId, boolean isChecked) {
+        Task task = taskRepository.getTask(taskId);
+        if (task == null) {
+            android.util.Log.e(TAG, "Unknown task for checkbox: " + taskId);
             return;
         }
         
-        Task task = taskList.get(position);
         task.setCompleted(isChecked);
         
-        // Save task status change to local database
-        taskDatabase.saveTasks(taskList);
+        // Save task status change; the repository re-sorts and notifies the fragments
+        taskRepository.updateTask(task);
         
         // Update task in MongoDB
         if (mongoDBTaskManager != null) {
@@ -783,56 +757,28 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
                 }
             });
         }
-        
-        // If current fragment is AllTasksFragment, need to reorder the tasks
-        // Other fragments will automatically hide completed tasks
-        if (activeFragment instanceof AllTasksFragment) {
-            java.util.Collections.sort(taskList, (task1, task2) -> {
-                if (task1.isCompleted() && !task2.isCompleted()) {
-                    return 1;
-                } else if (!task1.isCompleted() && task2.isCompleted()) {
-                    return -1;
-                }
-                return 0;
-            });
-            
-            allTasksFragment.refreshTasks();
-        }
-        
-        // Always refresh all fragments to ensure consistency
-        if (todayTasksFragment != null) {
-            todayTasksFragment.refreshTasks();
-        }
-        if (importantTasksFragment != null) {
-            importantTasksFragment.refreshTasks();
-        }
     }
     
     @Override
-    public void onEditClick(int position) {
-        android.util.Log.d(TAG, "MainActivity.onEditClick called with position: " + position);
+    public void onEditClick(TaskId taskId) {
         // Open edit dialog
-        showEditTaskDialog(position);
+        showEditTaskDialog(taskId);
     }
     
     @Override
-    public void onDeleteClick(int position) {
-        android.util.Log.d(TAG, "MainActivity.onDeleteClick called with position: " + position);
+    public void onDeleteClick(TaskId taskId) {
         // Show confirmation dialog
-        showDeleteConfirmationDialog(position);
+        showDeleteConfirmationDialog(taskId);
     }
     
     @Override
-    public void onImportantClick(int position) {
-        // Safety check: ensure position is valid and taskList is not empty
-        if (taskList == null || position < 0 || position >= taskList.size()) {
-            android.util.Log.e(TAG, "Invalid position for important: " + position + ", taskList size: " + 
-                    (taskList != null ? taskList.size() : "null"));
+    public void onImportantClick(TaskId taskId) {
+        Task task = taskRepository.getTask(taskId);
+        if (task == null) {
+            android.util.Log.e(TAG, "Unknown task for important: " + taskId);
             return;
         }
         
-        Task task = taskList.get(position);
-        
         // Toggle important status
         boolean newStatus = !task.isImportant();
         task.setImportant(newStatus);
@@ -846,7 +792,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
         }
         
         // Save changes to local database
-        taskDatabase.saveTasks(taskList);
+        taskRepository.updateTask(task);
         
         // Update task in MongoDB
         if (mongoDBTaskManager != null) {
@@ -868,24 +814,17 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
                 R.string.toast_task_important : 
                 R.string.toast_task_not_important;
         Toast.makeText(this, messageResId, Toast.LENGTH_SHORT).show();
-        
-        // Refresh all fragments to ensure consistency
-        refreshFragments();
     }
     
     // Add new helper methods for dialogs
-    private void showEditTaskDialog(int position) {
-        android.util.Log.d(TAG, "showEditTaskDialog called with position: " + position);
-        
-        // Safety check: ensure position is valid and taskList is not empty
-        if (taskList == null || position < 0 || position >= taskList.size()) {
-            android.util.Log.e(TAG, "Invalid position for edit: " + position + ", taskList size: " + 
-                    (taskList != null ? taskList.size() : "null"));
-            Toast.makeText(this, "Error: Invalid task position", Toast.LENGTH_SHORT).show();
+    private void showEditTaskDialog(TaskId taskId) {
+        Task task = taskRepository.getTask(taskId);
+        if (task == null) {
+            android.util.Log.e(TAG, "Unknown task for edit: " + taskId);
+            Toast.makeText(this, "Error: Task not found", Toast.LENGTH_SHORT).show();
             return;
         }
         
-        Task task = taskList.get(position);
         android.util.Log.d(TAG, "Editing task: " + task.getName() + " with ID: " + task.getId());
         
         // Create dialog view
@@ -905,8 +844,38 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
         
         // Set current values
         nameEditText.setText(task.getName());
-        descriptionEditText.setText(task.getDescription());
         timeEditText.setText(task.getTime());
+        // Set when the stored description could not be fetched, so an empty field is not saved over it
+        AtomicBoolean descriptionUnknown = new AtomicBoolean(false);
+        if (task.isDescriptionLoaded()) {
+            descriptionEditText.setText(task.getDescription());
+        } else if (mongoDBTaskManager == null) {
+            descriptionUnknown.set(true);
+        } else {
+            // Synced tasks come without their description; fetch it now it is needed
+            descriptionEditText.setEnabled(false);
+            mongoDBTaskManager.loadDescription(task, new MongoDBTaskManager.DescriptionCallback() {
+                @Override
+                public void onLoaded(String description) {
+                    mainHandler.post(() -> {
+                        taskRepository.applyLoadedDescription(task.getTaskId(), description);
+                        descriptionEditText.setText(description);
+                        descriptionEditText.setEnabled(true);
+                    });
+                }
+                
+                @Override
+                public void onError(String error) {
+                    android.util.Log.e(TAG, "Failed to load task description: " + error);
+                    mainHandler.post(() -> {
+                        descriptionUnknown.set(true);
+                        descriptionEditText.setEnabled(true);
+                        Toast.makeText(MainActivity.this, R.string.toast_description_load_failed,
+                                Toast.LENGTH_SHORT).show();
+                    });
+                }
+            });
+        }
         
         // Setup category spinner
         ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(
@@ -932,12 +901,17 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
                 .setPositiveButton(R.string.button_save, (dialogInterface, which) -> {
                     // Update task with new values
                     task.setName(nameEditText.getText().toString().trim());
-                    task.setDescription(descriptionEditText.getText().toString().trim());
+                    String description = descriptionEditText.getText().toString().trim();
+                    if (descriptionEditText.isEnabled()
+                            && !(descriptionUnknown.get() && description.isEmpty())) {
+                        // Left alone while it is still loading or could not be loaded, so it is not cleared
+                        task.setDescription(description);
+                    }
                     task.setTime(timeEditText.getText().toString().trim());
                     task.setCategory(categorySpinner.getSelectedItem().toString());
                     
                     // Save changes to local database
-                    taskDatabase.saveTasks(taskList);
+                    taskRepository.updateTask(task);
                     
                     // Update task in MongoDB
                     if (mongoDBTaskManager != null) {
@@ -954,9 +928,6 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
                         });
                     }
                     
-                    // Refresh fragments
-                    refreshFragments();
-                    
                     Toast.makeText(this, R.string.toast_task_updated, Toast.LENGTH_SHORT).show();
                 })
                 .setNegativeButton(R.string.button_cancel, null)
@@ -965,18 +936,14 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
         dialog.show();
     }
     
-    private void showDeleteConfirmationDialog(int position) {
-        android.util.Log.d(TAG, "showDeleteConfirmationDialog called with position: " + position);
-        
-        // Safety check: ensure position is valid and taskList is not empty
-        if (taskList == null || position < 0 || position >= taskList.size()) {
-            android.util.Log.e(TAG, "Invalid position for delete: " + position + ", taskList size: " + 
-                    (taskList != null ? taskList.size() : "null"));
-            Toast.makeText(this, "Error: Invalid task position", Toast.LENGTH_SHORT).show();
+    private void showDeleteConfirmationDialog(TaskId taskId) {
+        Task task = taskRepository.getTask(taskId);
+        if (task == null) {
+            android.util.Log.e(TAG, "Unknown task for delete: " + taskId);
+            Toast.makeText(this, "Error: Task not found", Toast.LENGTH_SHORT).show();
             return;
         }
         
-        Task task = taskList.get(position);
         android.util.Log.d(TAG, "Deleting task: " + task.getName() + " with ID: " + task.getId());
         
         AlertDialog dialog = new AlertDialog.Builder(this)
@@ -985,14 +952,8 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
                 .setPositiveButton(R.string.button_delete, (dialogInterface, which) -> {
                     android.util.Log.d(TAG, "Delete confirmed for task: " + task.getName());
                     
-                    // Get task ID for MongoDB deletion
-                    String taskId = task.getId();
-                    
-                    // Remove task from local list
-                    taskList.remove(position);
-                    
-                    // Save changes to local database
-                    taskDatabase.saveTasks(taskList);
+                    // Remove task from the local list and database
+                    taskRepository.deleteTask(taskId);
                     
                     // Delete task from MongoDB
                     if (mongoDBTaskManager != null) {
@@ -1009,9 +970,6 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
                         });
                     }
                     
-                    // Refresh fragments
-                    refreshFragments();
-                    
                     Toast.makeText(this, R.string.toast_task_deleted, Toast.LENGTH_SHORT).show();
                 })
                 .setNegativeButton(R.string.button_cancel, null)
@@ -1043,13 +1001,20 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
                     Toast.makeText(MainActivity.this, "MongoDB test: Task saved successfully", Toast.LENGTH_SHORT).show();
                 });
                 
-                // Test retrieval
-                mongoDBTaskManager.getAllTasks(new MongoDBTaskManager.TaskListCallback() {
+                // Test retrieval: read back the newest test task only, not the whole collection
+                TaskQuery newestTestTask = TaskQuery.builder()
+                        .category(testTask.getCategory())
+                        .sortBy(TaskQuery.SortField.UPDATED_AT, true)
+                        .limit(1)
+                        .build();
+                mongoDBTaskManager.queryTasks(newestTestTask, new MongoDBTaskManager.TaskListCallback() {
                     @Override
                     public void onSuccess(List<Task> tasks) {
-                        android.util.Log.d(TAG, "MongoDB test: Retrieved " + tasks.size() + " tasks");
+                        boolean found = !tasks.isEmpty() && tasks.get(0).getId().equals(testTask.getId());
+                        android.util.Log.d(TAG, "MongoDB test: Test task " + (found ? "retrieved" : "not found"));
                         mainHandler.post(() -> {
-                            Toast.makeText(MainActivity.this, "MongoDB test: Retrieved " + tasks.size() + " tasks", Toast.LENGTH_SHORT).show();
+                            Toast.makeText(MainActivity.this, found ? "MongoDB test: Task retrieved successfully"
+                                    : "MongoDB test failed: Task not found", Toast.LENGTH_SHORT).show();
                         });
                     }
                     
@@ -1077,10 +1042,21 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
     protected void onDestroy() {
         super.onDestroy();
         
-        // Close MongoDB connections
+        MongoHealthProbe.getInstance().removeListener(healthListener);
+        if (networkCallbackRegistered) {
+            ConnectivityManager connectivityManager =
+                    (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+            networkCallbackRegistered = false;
+        }
+        
+        // The manager is shared by every MainActivity of the process, e.g. after a
+        // rotation, so its queued writes are sent but its executors keep running
         if (mongoDBTaskManager != null) {
-            mongoDBTaskManager.shutdown();
+            mongoDBTaskManager.flushWrites();
+            mongoDBTaskManager.logMetrics();
         }
         MongoDBConfig.close();
+        apiService.getClassificationCache().logMetrics();
     }
 }
\ No newline at end of file
@@ -3,10 +3,10 @@ package com.example.smart_todo;
 import android.util.Log;
 import okhttp3.*;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
 
 /**
  * MongoDB Atlas Data API configuration and connection manager
@@ -29,6 +29,8 @@ public class MongoDBConfig {
     private static final String API_KEY = ""; // Your MongoDB Atlas API Key
     
     private static final String BASE_URL = "https://data.mongodb-api.com/app/" + APP_ID + "/endpoint/data/v1";
+    // Sync pages, write batches and the health probe together never need more
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
     
     private static OkHttpClient httpClient;
     private static Gson gson;
@@ -49,11 +51,10 @@ public class MongoDBConfig {
      */
     public static synchronized void initialize() {
         if (httpClient == null) {
-            httpClient = new OkHttpClient.Builder()
-                    .connectTimeout(30, TimeUnit.SECONDS)
-                    .readTimeout(30, TimeUnit.SECONDS)
-                    .writeTimeout(30, TimeUnit.SECONDS)
-                    .build();
+            // Shares its connection pool with the LLM backend's requests
+            HttpTransport transport = HttpTransport.getInstance();
+            transport.configureHost(BASE_URL, MAX_CONCURRENT_REQUESTS);
+            httpClient = transport.getClient();
             gson = new Gson();
             
             if (isConfigured()) {
@@ -92,7 +93,15 @@ public class MongoDBConfig {
         if (!isConfigured()) {
             throw new IOException("MongoDB Atlas not configured. Please set APP_ID and API_KEY in MongoDBConfig.java");
         }
-        return httpClient.newCall(request).execute();
+        Response response;
+        try {
+            response = httpClient.newCall(request).execute();
+        } catch (IOException e) {
+            MongoHealthProbe.getInstance().report(false);
+            throw e;
+        }
+        MongoHealthProbe.getInstance().report(response.code() < 500);
+        return response;
     }
     
     /**
@@ -167,6 +176,59 @@ public class MongoDBConfig {
                 .build();
     }
     
+    /**
+     * Create request for one page of documents, in the given sort order
+     */
+    public static Request createFindRequest(JsonObject filter, JsonObject sort, int limit) {
+        return createFindRequest(filter, sort, limit, null);
+    }
+    
+    /**
+     * Create request for the given fields of at most limit documents; a null sort or
+     * projection is left out
+     */
+    public static Request createFindRequest(JsonObject filter, JsonObject sort, int limit,
+                                            JsonObject projection) {
+        JsonObject requestBody = createBaseRequestBody();
+        requestBody.add("filter", filter);
+        if (sort != null) {
+            requestBody.add("sort", sort);
+        }
+        requestBody.addProperty("limit", limit);
+        if (projection != null) {
+            requestBody.add("projection", projection);
+        }
+        
+        RequestBody body = RequestBody.create(
+                requestBody.toString(),
+                MediaType.parse("application/json")
+        );
+        
+        return createBaseRequest()
+                .url(BASE_URL + "/action/find")
+                .post(body)
+                .build();
+    }
+    
+    /**
+     * Create request for a single document, with only the projected fields
+     */
+    public static Request createFindOneRequest(JsonObject filter, JsonObject projection) {
+        JsonObject requestBody = createBaseRequestBody();
+        requestBody.add("filter", filter);
+        requestBody.add("projection", projection);
+        
+        RequestBody body = RequestBody.create(
+                requestBody.toString(),
+                MediaType.parse("application/json")
+        );
+        
+        return createBaseRequest()
+                .url(BASE_URL + "/action/findOne")
+                .post(body)
+                .build();
+    }
+    
     /**
      * Create request for inserting a document
      */
@@ -223,7 +285,46 @@ public class MongoDBConfig {
     }
     
     /**
-     * Test the connection to MongoDB Atlas Data API
+     * Create request for inserting several documents at once
+     */
+    public static Request createInsertManyRequest(JsonArray documents) {
+        JsonObject requestBody = createBaseRequestBody();
+        requestBody.add("documents", documents);
+        
+        RequestBody body = RequestBody.create(
+                requestBody.toString(),
+                MediaType.parse("application/json")
+        );
+        
+        return createBaseRequest()
+                .url(BASE_URL + "/action/insertMany")
+                .post(body)
+                .build();
+    }
+    
+    /**
+     * Create request for applying one update to every matching document
+     */
+    public static Request createUpdateManyRequest(JsonObject filter, JsonObject update) {
+        JsonObject requestBody = createBaseRequestBody();
+        requestBody.add("filter", filter);
+        requestBody.add("update", update);
+        
+        RequestBody body = RequestBody.create(
+                requestBody.toString(),
+                MediaType.parse("application/json")
+        );
+        
+        return createBaseRequest()
+                .url(BASE_URL + "/action/updateMany")
+                .post(body)
+                .build();
+    }
+    
+    /**
+     * Test the connection to MongoDB Atlas Data API.
+     * Asks for the _id of at most one document, so the answer is tiny whatever the
+     * size of the collection. Use MongoHealthProbe to reuse a recent answer instead.
      */
     public static boolean testConnection() {
         if (!isConfigured()) {
@@ -232,8 +333,9 @@ public class MongoDBConfig {
         }
         
         try {
-            JsonObject filter = new JsonObject();
-            Request request = createFindRequest(filter);
+            JsonObject projection = new JsonObject();
+            projection.addProperty("_id", 1);
+            Request request = createFindOneRequest(new JsonObject(), projection);
             
             Response response = executeRequest(request);
             boolean isSuccess = response.isSuccessful();
@@ -259,7 +361,8 @@ public class MongoDBConfig {
      * Close resources (if needed)
      */
     public static void close() {
-        // OkHttpClient will clean up automatically
+        // The shared OkHttpClient cleans up its idle connections itself
+        HttpTransport.getInstance().logMetrics();
         Log.d(TAG, "MongoDB Atlas Data API client resources released");
     }
     
@@ -1,13 +1,14 @@
 package com.example.smart_todo;
 
+import android.content.Context;
 import android.util.Log;
 import okhttp3.*;
 import com.google.gson.*;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
 import java.io.IOException;
 
 /**
@@ -15,18 +16,51 @@ import java.io.IOException;
  */
 public class MongoDBTaskManager {
     private static final String TAG = "MongoDBTaskManager";
+    // Writes from one burst are sent together; a full batch goes out straight away
+    private static final long WRITE_BATCH_WINDOW_MS = 500;
+    private static final int MAX_WRITE_BATCH_SIZE = 50;
+    // Changes are fetched from this long before the watermark, so a write stamped by a
+    // device whose clock runs slightly behind is still picked up
+    private static final long SYNC_OVERLAP_MS = 5 * 60 * 1000;
+    // Documents per find request; bounds the memory one response takes
+    private static final int PAGE_SIZE = 500;
+    // List fetches leave out the description, which can be any length; it is loaded
+    // on its own when a task is opened
+    private static final JsonObject SUMMARY_PROJECTION = TaskQuery.builder()
+            .fields(Task.ALL_FIELDS & ~Task.FIELD_DESCRIPTION)
+            .build()
+            .toProjection();
+    private static final int DESCRIPTION_CACHE_SIZE = 100;
     private static MongoDBTaskManager instance;
-    private ExecutorService executorService;
+    private MongoRequestExecutor requestExecutor;
+    private MongoWriteBatcher writeBatcher;
     private Gson gson;
+    // Recently loaded descriptions by task ID, least recently used first; guarded by itself
+    private final LinkedHashMap<TaskId, LoadedDescription> descriptionCache =
+            new LinkedHashMap<TaskId, LoadedDescription>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<TaskId, LoadedDescription> eldest) {
+                    return size() > DESCRIPTION_CACHE_SIZE;
+                }
+            };
     
-    private MongoDBTaskManager() {
-        executorService = Executors.newFixedThreadPool(3);
+    private MongoDBTaskManager(Context context) {
+        requestExecutor = new MongoRequestExecutor();
+        writeBatcher = new MongoWriteBatcher(SqliteMongoOutbox.getInstance(context),
+                MongoDBConfig::executeRequest, WRITE_BATCH_WINDOW_MS, MAX_WRITE_BATCH_SIZE);
+        // Writes queued while offline go out as soon as the server answers again
+        MongoHealthProbe.getInstance().addListener(online -> {
+            if (online) {
+                writeBatcher.flush();
+                requestExecutor.onBackendHealthy();
+            }
+        });
         gson = MongoDBConfig.getGson();
     }
     
-    public static synchronized MongoDBTaskManager getInstance() {
+    public static synchronized MongoDBTaskManager getInstance(Context context) {
         if (instance == null) {
-            instance = new MongoDBTaskManager();
+            instance = new MongoDBTaskManager(context);
         }
         return instance;
     }
@@ -37,81 +71,56 @@ public class MongoDBTaskManager {
     private JsonObject taskToJsonObject(Task task) {
         JsonObject doc = new JsonObject();
         doc.addProperty("id", task.getId());
-        doc.addProperty("name", task.getName());
-        doc.addProperty("description", task.getDescription());
-        doc.addProperty("category", task.getCategory());
-        doc.addProperty("time", task.getTime());
         
         // Convert dates to ISO string format
         if (task.getCreatedAt() != null) {
             doc.addProperty("createdAt", task.getCreatedAt().getTime());
         }
-        if (task.getDueDate() != null) {
-            doc.addProperty("dueDate", task.getDueDate().getTime());
-        }
         
-        doc.addProperty("completed", task.isCompleted());
-        doc.addProperty("important", task.isImportant());
-        doc.addProperty("priority", task.getPriority());
+        int fields = Task.ALL_FIELDS;
+        if (task.getDueDate() == null) {
+            // A new document simply leaves it out
+            fields &= ~Task.FIELD_DUE_DATE;
+        }
+        addFields(doc, task, fields);
         
         return doc;
     }
     
     /**
-     * Convert JsonObject from MongoDB to Task object
+     * Add the given Task.FIELD_* fields, and updatedAt, to a document or $set
      */
-    private Task jsonObjectToTask(JsonObject doc) {
-        Task task = new Task();
-        
-        if (doc.has("name") && !doc.get("name").isJsonNull()) {
-            task.setName(doc.get("name").getAsString());
+    private static void addFields(JsonObject doc, Task task, int fields) {
+        if ((fields & Task.FIELD_NAME) != 0) {
+            doc.addProperty("name", task.getName());
         }
-        if (doc.has("description") && !doc.get("description").isJsonNull()) {
-            task.setDescription(doc.get("description").getAsString());
+        if ((fields & Task.FIELD_DESCRIPTION) != 0) {
+            doc.addProperty("description", task.getDescription());
         }
-        if (doc.has("category") && !doc.get("category").isJsonNull()) {
-            task.setCategory(doc.get("category").getAsString());
+        if ((fields & Task.FIELD_CATEGORY) != 0) {
+            doc.addProperty("category", task.getCategory());
         }
-        if (doc.has("time") && !doc.get("time").isJsonNull()) {
-            task.setTime(doc.get("time").getAsString());
+        if ((fields & Task.FIELD_TIME) != 0) {
+            doc.addProperty("time", task.getTime());
         }
-        
-        task.setCompleted(doc.has("completed") && doc.get("completed").getAsBoolean());
-        task.setImportant(doc.has("important") && doc.get("important").getAsBoolean());
-        
-        if (doc.has("priority") && !doc.get("priority").isJsonNull()) {
-            task.setPriority(doc.get("priority").getAsInt());
+        if ((fields & Task.FIELD_DUE_DATE) != 0) {
+            // Null clears the due date
+            doc.addProperty("dueDate", task.getDueDate() != null ? task.getDueDate().getTime() : null);
         }
-        
-        // Handle dates
-        if (doc.has("dueDate") && !doc.get("dueDate").isJsonNull()) {
-            long timestamp = doc.get("dueDate").getAsLong();
-            task.setDueDate(new Date(timestamp));
+        if ((fields & Task.FIELD_COMPLETED) != 0) {
+            doc.addProperty("completed", task.isCompleted());
         }
-        
-        // Set ID and createdAt using reflection (as before)
-        try {
-            if (doc.has("id") && !doc.get("id").isJsonNull()) {
-                java.lang.reflect.Field idField = Task.class.getDeclaredField("id");
-                idField.setAccessible(true);
-                idField.set(task, doc.get("id").getAsString());
-            }
-            
-            if (doc.has("createdAt") && !doc.get("createdAt").isJsonNull()) {
-                java.lang.reflect.Field createdAtField = Task.class.getDeclaredField("createdAt");
-                createdAtField.setAccessible(true);
-                long timestamp = doc.get("createdAt").getAsLong();
-                createdAtField.set(task, new Date(timestamp));
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Could not set ID or createdAt fields via reflection", e);
+        if ((fields & Task.FIELD_IMPORTANT) != 0) {
+            doc.addProperty("important", task.isImportant());
         }
-        
-        return task;
+        if ((fields & Task.FIELD_PRIORITY) != 0) {
+            doc.addProperty("priority", task.getPriority());
+        }
+        doc.addProperty("updatedAt", task.getUpdatedAt());
     }
     
     /**
-     * Save a task to MongoDB Atlas
+     * Save a task to MongoDB Atlas. Sent with other writes from the same burst.
      */
     public void saveTask(Task task, TaskOperationCallback callback) {
         if (!MongoDBConfig.isConfigured()) {
@@ -120,41 +129,14 @@ public class MongoDBTaskManager {
             return;
         }
         
-        executorService.execute(() -> {
-            try {
-                JsonObject taskDoc = taskToJsonObject(task);
-                Request request = MongoDBConfig.createInsertRequest(taskDoc);
-                
-                Response response = MongoDBConfig.executeRequest(request);
-                
-                if (response.isSuccessful()) {
-                    String responseBody = response.body().string();
-                    JsonObject result = JsonParser.parseString(responseBody).getAsJsonObject();
-                    
-                    if (result.has("insertedId")) {
-                        Log.d(TAG, "Task saved successfully: " + task.getName());
-                        if (callback != null) callback.onSuccess("Task saved successfully");
-                    } else {
-                        Log.e(TAG, "Failed to save task: " + task.getName());
-                        if (callback != null) callback.onError("Failed to save task");
-                    }
-                } else {
-                    Log.e(TAG, "HTTP error saving task: " + response.code());
-                    String errorBody = response.body() != null ? response.body().string() : "No error details";
-                    Log.e(TAG, "Error response: " + errorBody);
-                    if (callback != null) callback.onError("HTTP error: " + response.code());
-                }
-                
-                response.close();
-            } catch (Exception e) {
-                Log.e(TAG, "Error saving task", e);
-                if (callback != null) callback.onError("Error saving task: " + e.getMessage());
-            }
-        });
+        // The whole task goes out, so nothing is left to send in a later update
+        task.clearDirtyFields();
+        writeBatcher.insert(task.getId(), taskToJsonObject(task), callback);
     }
     
     /**
-     * Update an existing task in MongoDB Atlas
+     * Update an existing task in MongoDB Atlas. Only the fields changed since the task
+     * was last sent are set, and it goes out with other writes from the same burst.
      */
     public void updateTask(Task task, TaskOperationCallback callback) {
         if (!MongoDBConfig.isConfigured()) {
@@ -163,234 +145,408 @@ public class MongoDBTaskManager {
             return;
         }
         
-        executorService.execute(() -> {
-            try {
-                JsonObject filter = new JsonObject();
-                filter.addProperty("id", task.getId());
-                
-                JsonObject updateDoc = new JsonObject();
-                JsonObject setDoc = taskToJsonObject(task);
-                updateDoc.add("$set", setDoc);
-                
-                Request request = MongoDBConfig.createUpdateRequest(filter, updateDoc);
-                
-                Response response = MongoDBConfig.executeRequest(request);
-                
-                if (response.isSuccessful()) {
-                    String responseBody = response.body().string();
-                    JsonObject result = JsonParser.parseString(responseBody).getAsJsonObject();
-                    
-                    if (result.has("modifiedCount") && result.get("modifiedCount").getAsInt() > 0) {
-                        Log.d(TAG, "Task updated successfully: " + task.getName());
-                        if (callback != null) callback.onSuccess("Task updated successfully");
-                    } else {
-                        Log.w(TAG, "No task found to update with ID: " + task.getId());
-                        if (callback != null) callback.onError("Task not found");
-                    }
-                } else {
-                    Log.e(TAG, "HTTP error updating task: " + response.code());
-                    String errorBody = response.body() != null ? response.body().string() : "No error details";
-                    Log.e(TAG, "Error response: " + errorBody);
-                    if (callback != null) callback.onError("HTTP error: " + response.code());
-                }
-                
-                response.close();
-            } catch (Exception e) {
-                Log.e(TAG, "Error updating task", e);
-                if (callback != null) callback.onError("Error updating task: " + e.getMessage());
+        int fields = task.takeDirtyFields();
+        if (fields == 0) {
+            if (callback != null) callback.onSuccess("No changes to send");
+            return;
+        }
+        
+        JsonObject setDoc = new JsonObject();
+        addFields(setDoc, task, fields);
+        JsonObject updateDoc = new JsonObject();
+        updateDoc.add("$set", setDoc);
+        writeBatcher.update(task.getId(), updateDoc, new TaskOperationCallback() {
+            @Override
+            public void onSuccess(String message) {
+                if (callback != null) callback.onSuccess(message);
+            }
+            
+            @Override
+            public void onError(String error) {
+                // Send these fields again with the next update
+                task.markDirty(fields);
+                if (callback != null) callback.onError(error);
             }
         });
     }
     
     /**
-     * Delete a task from MongoDB Atlas
+     * Delete a task from MongoDB Atlas. Sent with other writes from the same burst.
      */
-    public void deleteTask(String taskId, TaskOperationCallback callback) {
+    public void deleteTask(TaskId taskId, TaskOperationCallback callback) {
         if (!MongoDBConfig.isConfigured()) {
             Log.w(TAG, "MongoDB Atlas not configured - skipping delete operation");
             if (callback != null) callback.onError("MongoDB not configured");
             return;
         }
         
-        executorService.execute(() -> {
-            try {
-                JsonObject filter = new JsonObject();
-                filter.addProperty("id", taskId);
-                
-                Request request = MongoDBConfig.createDeleteRequest(filter);
-                
-                Response response = MongoDBConfig.executeRequest(request);
-                
-                if (response.isSuccessful()) {
-                    String responseBody = response.body().string();
-                    JsonObject result = JsonParser.parseString(responseBody).getAsJsonObject();
-                    
-                    if (result.has("deletedCount") && result.get("deletedCount").getAsInt() > 0) {
-                        Log.d(TAG, "Task deleted successfully: " + taskId);
-                        if (callback != null) callback.onSuccess("Task deleted successfully");
-                    } else {
-                        Log.w(TAG, "No task found to delete with ID: " + taskId);
-                        if (callback != null) callback.onError("Task not found");
-                    }
-                } else {
-                    Log.e(TAG, "HTTP error deleting task: " + response.code());
-                    String errorBody = response.body() != null ? response.body().string() : "No error details";
-                    Log.e(TAG, "Error response: " + errorBody);
-                    if (callback != null) callback.onError("HTTP error: " + response.code());
-                }
-                
-                response.close();
-            } catch (Exception e) {
-                Log.e(TAG, "Error deleting task", e);
-                if (callback != null) callback.onError("Error deleting task: " + e.getMessage());
+        writeBatcher.delete(taskId.toString(), System.currentTimeMillis(), callback);
+    }
+    
+    /**
+     * Send queued writes now instead of at the end of the batching window,
+     * including writes waiting out a retry backoff
+     */
+    public void flushWrites() {
+        writeBatcher.flush();
+    }
+    
+    /**
+     * Get all tasks from MongoDB Atlas, one page at a time
+     */
+    public void getAllTasks(TaskPageCallback callback) {
+        if (!MongoDBConfig.isConfigured()) {
+            Log.w(TAG, "MongoDB Atlas not configured - returning empty list");
+            if (callback != null) callback.onComplete(0);
+            return;
+        }
+        
+        fetchTasks(liveTasksFilter(), "tasks", callback);
+    }
+    
+    /**
+     * Get all tasks from MongoDB Atlas in a single list
+     */
+    public void getAllTasks(TaskListCallback callback) {
+        getAllTasks(collectPages(callback));
+    }
+    
+    /**
+     * Get the tasks changed since a previous sync, including deletions, one page at a time.
+     * A watermark of 0 fetches everything.
+     */
+    public void getChangesSince(long watermark, TaskChangesCallback callback) {
+        if (!MongoDBConfig.isConfigured()) {
+            Log.w(TAG, "MongoDB Atlas not configured - skipping sync");
+            if (callback != null) callback.onError("MongoDB not configured");
+            return;
+        }
+        
+        requestExecutor.execute(() -> {
+            JsonObject filter = new JsonObject();
+            if (watermark > 0) {
+                JsonObject since = new JsonObject();
+                since.addProperty("$gt", watermark - SYNC_OVERLAP_MS);
+                filter.add("updatedAt", since);
             }
+            
+            // A delta only holds the tasks that changed, so it carries their descriptions;
+            // the first full sync fetches summaries like any other list fetch
+            JsonObject projection = watermark > 0 ? null : SUMMARY_PROJECTION;
+            long[] newWatermark = {watermark};
+            int count = fetchPages(filter, projection, page -> {
+                newWatermark[0] = Math.max(newWatermark[0], page.getMaxUpdatedAt());
+                fillCachedDescriptions(page.getTasks());
+                if (callback != null) {
+                    callback.onPage(new TaskChanges(page.getTasks(), page.getDeletedTasks()));
+                }
+            });
+            
+            Log.d(TAG, "Fetched " + count + " task changes since " + watermark);
+            if (callback != null) callback.onComplete(newWatermark[0]);
+        }, e -> {
+            Log.e(TAG, "Error fetching task changes", e);
+            if (callback != null) callback.onError("Error fetching task changes: " + e.getMessage());
         });
     }
     
     /**
-     * Get all tasks from MongoDB Atlas
+     * The tasks that have no delete waiting to be sent. A sync that fetched a task
+     * before its delete reached the server would otherwise bring it back.
      */
-    public void getAllTasks(TaskListCallback callback) {
+    public List<Task> withoutPendingDeletes(List<Task> tasks) {
+        if (!writeBatcher.hasPendingDeletes()) {
+            return tasks;
+        }
+        List<Task> live = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (!writeBatcher.isDeletePending(task.getId())) {
+                live.add(task);
+            }
+        }
+        return live;
+    }
+    
+    /**
+     * Filter that leaves out the tombstones of deleted tasks
+     */
+    private static JsonObject liveTasksFilter() {
+        return TaskQuery.builder().build().toFilter();
+    }
+    
+    /**
+     * Get tasks by completion status, one page at a time
+     */
+    public void getTasksByStatus(boolean completed, TaskPageCallback callback) {
+        JsonObject filter = TaskQuery.builder().completed(completed).build().toFilter();
+        fetchTasks(filter, completed ? "completed tasks" : "pending tasks", callback);
+    }
+    
+    /**
+     * Get tasks by completion status in a single list
+     */
+    public void getTasksByStatus(boolean completed, TaskListCallback callback) {
+        getTasksByStatus(completed, collectPages(callback));
+    }
+    
+    /**
+     * Get important tasks, one page at a time
+     */
+    public void getImportantTasks(TaskPageCallback callback) {
+        JsonObject filter = TaskQuery.builder().important(true).build().toFilter();
+        fetchTasks(filter, "important tasks", callback);
+    }
+    
+    /**
+     * Get important tasks in a single list
+     */
+    public void getImportantTasks(TaskListCallback callback) {
+        getImportantTasks(collectPages(callback));
+    }
+    
+    /**
+     * Run a query on the server, so only the matching documents, and only the fields it
+     * asks for, are sent. A query with a limit is a single find; one without is read in
+     * pages and then put in the query's order.
+     */
+    public void queryTasks(TaskQuery query, TaskListCallback callback) {
         if (!MongoDBConfig.isConfigured()) {
             Log.w(TAG, "MongoDB Atlas not configured - returning empty list");
             if (callback != null) callback.onSuccess(new ArrayList<>());
             return;
         }
         
-        executorService.execute(() -> {
-            try {
-                JsonObject filter = new JsonObject(); // Empty filter to get all documents
-                Request request = MongoDBConfig.createFindRequest(filter);
-                
-                Response response = MongoDBConfig.executeRequest(request);
-                
-                if (response.isSuccessful()) {
-                    String responseBody = response.body().string();
-                    JsonObject result = JsonParser.parseString(responseBody).getAsJsonObject();
-                    
-                    List<Task> tasks = new ArrayList<>();
-                    
-                    if (result.has("documents")) {
-                        JsonArray documents = result.getAsJsonArray("documents");
-                        for (JsonElement element : documents) {
-                            JsonObject doc = element.getAsJsonObject();
-                            Task task = jsonObjectToTask(doc);
-                            tasks.add(task);
-                        }
+        requestExecutor.execute(() -> {
+            List<Task> tasks = new ArrayList<>();
+            if (query.getLimit() > 0) {
+                JsonObject sort = query.isSorted() ? query.toSort() : idOrder();
+                try (Response response = MongoDBConfig.executeRequest(MongoDBConfig.createFindRequest(
+                        query.toFilter(), sort, query.getLimit(), query.toProjection()))) {
+                    if (!response.isSuccessful()) {
+                        String errorBody = response.body() != null ? response.body().string() : "No error details";
+                        Log.e(TAG, "Error response: " + errorBody);
+                        throw new HttpStatusException(response.code());
                     }
-                    
-                    Log.d(TAG, "Retrieved " + tasks.size() + " tasks from MongoDB Atlas");
-                    if (callback != null) callback.onSuccess(tasks);
-                } else {
-                    Log.e(TAG, "HTTP error retrieving tasks: " + response.code());
-                    String errorBody = response.body() != null ? response.body().string() : "No error details";
-                    Log.e(TAG, "Error response: " + errorBody);
-                    if (callback != null) callback.onError("HTTP error: " + response.code());
+                    tasks.addAll(MongoTaskReader.readPage(
+                            response.body().charStream(), query.toProjection()).getTasks());
                 }
-                
-                response.close();
-            } catch (Exception e) {
-                Log.e(TAG, "Error retrieving tasks", e);
-                if (callback != null) callback.onError("Error retrieving tasks: " + e.getMessage());
+            } else {
+                fetchPages(query.toFilter(), query.toProjection(), page -> tasks.addAll(page.getTasks()));
+                query.sort(tasks);
             }
+            
+            Log.d(TAG, "Query " + query + " returned " + tasks.size() + " tasks");
+            if (callback != null) callback.onSuccess(tasks);
+        }, e -> {
+            Log.e(TAG, "Error running task query", e);
+            if (callback != null) callback.onError("Error running task query: " + e.getMessage());
         });
     }
     
+    private static JsonObject idOrder() {
+        JsonObject sort = new JsonObject();
+        sort.addProperty("id", 1);
+        return sort;
+    }
+    
     /**
-     * Get tasks by completion status
+     * Fetch the matching tasks in the background, handing each page to the callback as it arrives
      */
-    public void getTasksByStatus(boolean completed, TaskListCallback callback) {
-        executorService.execute(() -> {
-            try {
-                JsonObject filter = new JsonObject();
-                filter.addProperty("completed", completed);
-                
-                Request request = MongoDBConfig.createFindRequest(filter);
-                
-                Response response = MongoDBConfig.executeRequest(request);
-                
-                if (response.isSuccessful()) {
-                    String responseBody = response.body().string();
-                    JsonObject result = JsonParser.parseString(responseBody).getAsJsonObject();
-                    
-                    List<Task> tasks = new ArrayList<>();
-                    
-                    if (result.has("documents")) {
-                        JsonArray documents = result.getAsJsonArray("documents");
-                        for (JsonElement element : documents) {
-                            JsonObject doc = element.getAsJsonObject();
-                            Task task = jsonObjectToTask(doc);
-                            tasks.add(task);
-                        }
-                    }
-                    
-                    Log.d(TAG, "Retrieved " + tasks.size() + " " + (completed ? "completed" : "pending") + " tasks");
-                    if (callback != null) callback.onSuccess(tasks);
-                } else {
-                    Log.e(TAG, "HTTP error retrieving tasks by status: " + response.code());
-                    if (callback != null) callback.onError("HTTP error: " + response.code());
+    private void fetchTasks(JsonObject filter, String description, TaskPageCallback callback) {
+        requestExecutor.execute(() -> {
+            int count = fetchPages(filter, SUMMARY_PROJECTION, page -> {
+                if (callback != null) callback.onPage(page.getTasks());
+            });
+            
+            Log.d(TAG, "Retrieved " + count + " " + description + " from MongoDB Atlas");
+            if (callback != null) callback.onComplete(count);
+        }, e -> {
+            Log.e(TAG, "Error retrieving " + description, e);
+            if (callback != null) callback.onError("Error retrieving " + description + ": " + e.getMessage());
+        });
+    }
+    
+    /**
+     * Read every document matching the filter, PAGE_SIZE at a time, in id order, with
+     * only the projected fields, or whole documents for a null projection.
+     * Each page asks for the ids after the last one seen rather than skipping a count,
+     * so every page is an index range scan however deep into the collection it is.
+     * Pages are decoded straight from the response stream.
+     * @return the number of documents read
+     */
+    private int fetchPages(JsonObject filter, JsonObject projection, DocumentPageHandler handler)
+            throws IOException {
+        JsonObject sort = idOrder();
+        // Every id sorts after the empty string; documents without one are skipped
+        String lastId = "";
+        int count = 0;
+        while (true) {
+            JsonObject after = new JsonObject();
+            after.addProperty("$gt", lastId);
+            JsonObject pageFilter = filter.deepCopy();
+            pageFilter.add("id", after);
+            
+            MongoTaskReader.Page page;
+            try (Response response = MongoDBConfig.executeRequest(
+                    MongoDBConfig.createFindRequest(pageFilter, sort, PAGE_SIZE, projection))) {
+                if (!response.isSuccessful()) {
+                    String errorBody = response.body() != null ? response.body().string() : "No error details";
+                    Log.e(TAG, "Error response: " + errorBody);
+                    throw new HttpStatusException(response.code());
                 }
-                
-                response.close();
-            } catch (Exception e) {
-                Log.e(TAG, "Error retrieving tasks by status", e);
-                if (callback != null) callback.onError("Error retrieving tasks: " + e.getMessage());
+                page = MongoTaskReader.readPage(response.body().charStream(), projection);
             }
-        });
+            
+            if (page.getDocumentCount() > 0) {
+                handler.onPage(page);
+                count += page.getDocumentCount();
+            }
+            if (page.getDocumentCount() < PAGE_SIZE || page.getLastId() == null) {
+                return count;
+            }
+            lastId = page.getLastId();
+        }
     }
     
     /**
-     * Get important tasks
+     * Load the description of a task fetched as a summary. Answered from the cache
+     * when it holds the description as of the task's last change.
      */
-    public void getImportantTasks(TaskListCallback callback) {
-        executorService.execute(() -> {
-            try {
-                JsonObject filter = new JsonObject();
-                filter.addProperty("important", true);
-                
-                Request request = MongoDBConfig.createFindRequest(filter);
-                
-                Response response = MongoDBConfig.executeRequest(request);
-                
-                if (response.isSuccessful()) {
-                    String responseBody = response.body().string();
-                    JsonObject result = JsonParser.parseString(responseBody).getAsJsonObject();
-                    
-                    List<Task> tasks = new ArrayList<>();
-                    
-                    if (result.has("documents")) {
-                        JsonArray documents = result.getAsJsonArray("documents");
-                        for (JsonElement element : documents) {
-                            JsonObject doc = element.getAsJsonObject();
-                            Task task = jsonObjectToTask(doc);
-                            tasks.add(task);
-                        }
-                    }
-                    
-                    Log.d(TAG, "Retrieved " + tasks.size() + " important tasks");
-                    if (callback != null) callback.onSuccess(tasks);
-                } else {
-                    Log.e(TAG, "HTTP error retrieving important tasks: " + response.code());
-                    if (callback != null) callback.onError("HTTP error: " + response.code());
+    public void loadDescription(Task task, DescriptionCallback callback) {
+        TaskId taskId = task.getTaskId();
+        synchronized (descriptionCache) {
+            LoadedDescription cached = descriptionCache.get(taskId);
+            if (cached != null && cached.updatedAt >= task.getUpdatedAt()) {
+                callback.onLoaded(cached.description);
+                return;
+            }
+        }
+        if (!MongoDBConfig.isConfigured()) {
+            callback.onError("MongoDB not configured");
+            return;
+        }
+        
+        requestExecutor.execute(() -> {
+            JsonObject filter = new JsonObject();
+            filter.addProperty("id", taskId.toString());
+            JsonObject projection = new JsonObject();
+            projection.addProperty("description", 1);
+            projection.addProperty("updatedAt", 1);
+            JsonObject document;
+            try (Response response = MongoDBConfig.executeRequest(
+                    MongoDBConfig.createFindOneRequest(filter, projection))) {
+                if (!response.isSuccessful()) {
+                    throw new HttpStatusException(response.code());
                 }
-                
-                response.close();
-            } catch (Exception e) {
-                Log.e(TAG, "Error retrieving important tasks", e);
-                if (callback != null) callback.onError("Error retrieving important tasks: " + e.getMessage());
+                JsonElement result = JsonParser.parseString(response.body().string())
+                        .getAsJsonObject().get("document");
+                document = result != null && result.isJsonObject() ? result.getAsJsonObject() : null;
+            }
+            if (document == null) {
+                callback.onError("Task not found");
+                return;
+            }
+            
+            JsonElement description = document.get("description");
+            JsonElement updatedAt = document.get("updatedAt");
+            String text = description != null && !description.isJsonNull() ? description.getAsString() : "";
+            synchronized (descriptionCache) {
+                descriptionCache.put(taskId, new LoadedDescription(text,
+                        updatedAt != null && !updatedAt.isJsonNull() ? updatedAt.getAsLong() : 0));
             }
+            callback.onLoaded(text);
+        }, e -> {
+            Log.e(TAG, "Error loading description of task " + taskId, e);
+            callback.onError("Error loading description: " + e.getMessage());
         });
     }
     
     /**
-     * Shutdown the executor service
+     * Fill in the descriptions the cache already holds for summaries it is current for
      */
-    public void shutdown() {
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
+    private void fillCachedDescriptions(List<Task> tasks) {
+        synchronized (descriptionCache) {
+            for (Task task : tasks) {
+                if (task.isDescriptionLoaded()) {
+                    continue;
+                }
+                LoadedDescription cached = descriptionCache.get(task.getTaskId());
+                if (cached != null && cached.updatedAt >= task.getUpdatedAt()) {
+                    task.setLoadedDescription(cached.description);
+                }
+            }
+        }
+    }
+    
+    private static class LoadedDescription {
+        final String description;
+        // updatedAt of the document the description was read from
+        final long updatedAt;
+        
+        LoadedDescription(String description, long updatedAt) {
+            this.description = description;
+            this.updatedAt = updatedAt;
         }
     }
     
+    /**
+     * Adapt a list callback to a page callback by collecting every page
+     */
+    private static TaskPageCallback collectPages(TaskListCallback callback) {
+        List<Task> tasks = new ArrayList<>();
+        return new TaskPageCallback() {
+            @Override
+            public void onPage(List<Task> page) {
+                tasks.addAll(page);
+            }
+            
+            @Override
+            public void onComplete(int totalCount) {
+                if (callback != null) callback.onSuccess(tasks);
+            }
+            
+            @Override
+            public void onError(String error) {
+                if (callback != null) callback.onError(error);
+            }
+        };
+    }
+    
+    private interface DocumentPageHandler {
+        void onPage(MongoTaskReader.Page page);
+    }
+    
+    /**
+     * Log how writes were batched and how reads were queued. The manager, with its
+     * write batcher and request executor, lives as long as the process, so nothing is
+     * shut down when an activity goes away.
+     */
+    public void logMetrics() {
+        Log.d(TAG, "Task writes per request: " + writeBatcher.getWritesPerRequest());
+        Log.d(TAG, "Request executor: " + requestExecutor);
+    }
+    
+    /**
+     * Reads queued behind the concurrency limit, waiting to start
+     */
+    public int getQueuedRequestCount() {
+        return requestExecutor.getQueueDepth();
+    }
+    
+    /**
+     * Reads refused because the queue was full or the circuit breaker was open
+     */
+    public long getRejectedRequestCount() {
+        return requestExecutor.getRejectionCount();
+    }
+    
+    /**
+     * Whether reads currently fail fast because MongoDB kept failing
+     */
+    public boolean isCircuitOpen() {
+        return requestExecutor.getCircuitState() == CircuitBreaker.State.OPEN;
+    }
+    
     /**
      * Callback interface for single task operations
      */
@@ -399,6 +555,55 @@ public class MongoDBTaskManager {
         void onError(String error);
     }
     
+    /**
+     * One page of the tasks changed on the server since a sync watermark
+     */
+    public static class TaskChanges {
+        private final List<Task> tasks;
+        // Deletion time of each deleted task, by ID
+        private final Map<String, Long> deletedTasks;
+        
+        TaskChanges(List<Task> tasks, Map<String, Long> deletedTasks) {
+            this.tasks = tasks;
+            this.deletedTasks = deletedTasks;
+        }
+        
+        public List<Task> getTasks() {
+            return tasks;
+        }
+        
+        public Map<String, Long> getDeletedTasks() {
+            return deletedTasks;
+        }
+    }
+    
+    /**
+     * Callback interface for sync operations
+     */
+    public interface TaskChangesCallback {
+        void onPage(TaskChanges changes);
+        // Called after the last page with the watermark to sync from next time
+        void onComplete(long watermark);
+        void onError(String error);
+    }
+    
+    /**
+     * Callback interface for paged task fetches, invoked on a background thread
+     */
+    public interface TaskPageCallback {
+        void onPage(List<Task> tasks);
+        void onComplete(int totalCount);
+        void onError(String error);
+    }
+    
+    /**
+     * Callback interface for description loads, invoked on a background thread
+     */
+    public interface DescriptionCallback {
+        void onLoaded(String description);
+        void onError(String error);
+    }
+    
     /**
      * Callback interface for task list operations
      */
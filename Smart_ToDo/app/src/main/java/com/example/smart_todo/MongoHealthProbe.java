@@ -0,0 +1,118 @@
+package com.example.smart_todo;
+
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Whether MongoDB Atlas can be reached, shared by everything that talks to it.
+ * Every Data API request reports its outcome here, so sync and write traffic keep the
+ * state current. A dedicated probe, a findOne returning only _id, is sent only
+ * when the last known state is older than HEALTH_TTL_MS. Listeners hear about
+ * transitions between online and offline.
+ */
+public class MongoHealthProbe {
+    private static final String TAG = "MongoHealthProbe";
+
+    // How long a known state is trusted without another request
+    private static final long HEALTH_TTL_MS = 30 * 1000;
+
+    private static MongoHealthProbe instance;
+
+    private final List<HealthListener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService probeExecutor = Executors.newSingleThreadExecutor();
+    // Held while probing, so concurrent checks share one request
+    private final Object probeLock = new Object();
+
+    // Guarded by this; null until the first request has finished
+    private Boolean online;
+    private long checkedAt;
+
+    private MongoHealthProbe() {
+    }
+
+    public static synchronized MongoHealthProbe getInstance() {
+        if (instance == null) {
+            instance = new MongoHealthProbe();
+        }
+        return instance;
+    }
+
+    public void addListener(HealthListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(HealthListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Whether a recent request failed to reach the server
+     */
+    public synchronized boolean isKnownOffline() {
+        return online != null && !online && isFresh();
+    }
+
+    /**
+     * Whether the server can be reached, probing only if the last known state has expired.
+     * Blocks while probing; call off the main thread.
+     */
+    public boolean check() {
+        synchronized (probeLock) {
+            synchronized (this) {
+                if (online != null && isFresh()) {
+                    return online;
+                }
+            }
+            // Reported to the listeners by MongoDBConfig, like any other request
+            return MongoDBConfig.testConnection();
+        }
+    }
+
+    /**
+     * Check in the background; listeners hear the result if it changes the state
+     */
+    public void checkAsync() {
+        probeExecutor.execute(this::check);
+    }
+
+    /**
+     * Forget the known state, e.g. when the device's network has changed
+     */
+    public synchronized void invalidate() {
+        checkedAt = 0;
+    }
+
+    /**
+     * Record the outcome of a request to the server
+     */
+    public void report(boolean reachable) {
+        boolean changed;
+        synchronized (this) {
+            changed = online == null || online != reachable;
+            online = reachable;
+            checkedAt = System.currentTimeMillis();
+        }
+        if (changed) {
+            Log.d(TAG, "MongoDB Atlas is " + (reachable ? "online" : "offline"));
+            for (HealthListener listener : listeners) {
+                listener.onHealthChanged(reachable);
+            }
+        }
+    }
+
+    private boolean isFresh() {
+        return System.currentTimeMillis() - checkedAt < HEALTH_TTL_MS;
+    }
+
+    /**
+     * Called on the thread that made the request, when the server is first found
+     * reachable or not, and whenever that changes
+     */
+    public interface HealthListener {
+        void onHealthChanged(boolean online);
+    }
+}
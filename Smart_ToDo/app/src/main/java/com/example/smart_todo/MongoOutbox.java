@@ -0,0 +1,65 @@
+package com.example.smart_todo;
+
+import com.google.gson.JsonObject;
+
+import java.util.List;
+
+/**
+ * Durable queue of task writes waiting to reach MongoDB Atlas.
+ * Each write is stored before anything is sent and removed only once the server has
+ * taken it, so writes made offline, or lost to a failed request or a killed process,
+ * are sent later. Entries are read back in the order they were added, which keeps
+ * the writes for each task in order.
+ */
+interface MongoOutbox {
+    int OP_INSERT = 0;
+    int OP_UPDATE = 1;
+    int OP_DELETE = 2;
+
+    /**
+     * Store a write
+     * @return its sequence number
+     */
+    long append(String taskId, int op, JsonObject document);
+
+    /**
+     * The oldest stored writes, oldest first
+     */
+    List<Entry> peek(int limit);
+
+    /**
+     * IDs of the tasks with a stored write of the given kind
+     */
+    List<String> findTaskIds(int op);
+
+    int size();
+
+    /**
+     * Drop writes the server has taken, or that can never succeed
+     */
+    void remove(List<Long> seqs);
+
+    /**
+     * Count a failed attempt to send the writes
+     */
+    void markAttempted(List<Long> seqs);
+
+    /**
+     * One stored write
+     */
+    class Entry {
+        final long seq;
+        final String taskId;
+        final int op;
+        final JsonObject document;
+        final int attempts;
+
+        Entry(long seq, String taskId, int op, JsonObject document, int attempts) {
+            this.seq = seq;
+            this.taskId = taskId;
+            this.op = op;
+            this.document = document;
+            this.attempts = attempts;
+        }
+    }
+}
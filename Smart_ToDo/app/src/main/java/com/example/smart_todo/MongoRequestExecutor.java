@@ -0,0 +1,209 @@
+package com.example.smart_todo;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs MongoDBTaskManager's background reads.
+ * Operations wait in a bounded queue and start only as the AdaptiveLimiter allows, so a
+ * slow backend gets fewer at once instead of a growing pile. While the CircuitBreaker
+ * is open, and when the queue is full, new operations fail straight away. An operation
+ * the server answered with a client error, such as 404, counts as the backend working.
+ */
+class MongoRequestExecutor {
+    private static final String TAG = "MongoRequestExecutor";
+
+    private static final int INITIAL_LIMIT = 3;
+    private static final int MAX_LIMIT = 8;
+    // An operation slower than this counts against the limit like a failure
+    private static final long SLOW_OPERATION_MS = 10 * 1000;
+    private static final int MAX_QUEUED = 32;
+    private static final int FAILURES_TO_OPEN = 3;
+    private static final long OPEN_MS = 30 * 1000;
+
+    private final AdaptiveLimiter limiter = new AdaptiveLimiter(INITIAL_LIMIT, 1, MAX_LIMIT, SLOW_OPERATION_MS);
+    private final CircuitBreaker circuitBreaker;
+    // At most MAX_LIMIT threads, since that is the most the limiter lets run
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    // Guarded by this
+    private final ArrayDeque<QueuedOperation> queue = new ArrayDeque<>();
+    private long rejections;
+    private boolean shutdown;
+
+    MongoRequestExecutor() {
+        this(new CircuitBreaker("MongoDB", FAILURES_TO_OPEN, OPEN_MS));
+    }
+
+    MongoRequestExecutor(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Queue an operation. If it cannot be queued, or it throws, onFailure is told;
+     * a RejectedExecutionException means it never ran.
+     */
+    void execute(Operation operation, FailureHandler onFailure) {
+        String rejection = null;
+        synchronized (this) {
+            if (shutdown) {
+                rejection = "Shut down";
+            } else if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                // Checked again before it runs; this only spares a doomed wait in the queue
+                rejection = "MongoDB is failing, not trying again yet";
+            } else if (queue.size() >= MAX_QUEUED) {
+                rejection = "Too many MongoDB requests waiting";
+            } else {
+                queue.add(new QueuedOperation(operation, onFailure));
+            }
+            if (rejection != null) {
+                rejections++;
+            }
+        }
+        if (rejection != null) {
+            Log.w(TAG, rejection);
+            onFailure.onFailure(new RejectedExecutionException(rejection));
+            return;
+        }
+        startQueued();
+    }
+
+    /**
+     * Treat the backend as healthy again, e.g. once a probe got through
+     */
+    void onBackendHealthy() {
+        circuitBreaker.recordSuccess();
+        startQueued();
+    }
+
+    void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+        }
+        threads.shutdown();
+    }
+
+    synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    synchronized long getRejectionCount() {
+        return rejections;
+    }
+
+    CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    int getConcurrencyLimit() {
+        return limiter.getLimit();
+    }
+
+    @Override
+    public String toString() {
+        return "circuit " + getCircuitState() + ", limit " + limiter.getLimit()
+                + ", " + limiter.getInFlight() + " running, " + getQueueDepth() + " queued, "
+                + getRejectionCount() + " rejected";
+    }
+
+    /**
+     * Start queued operations while the limiter has room
+     */
+    private void startQueued() {
+        while (true) {
+            QueuedOperation next;
+            String rejection = null;
+            synchronized (this) {
+                if (queue.isEmpty() || !limiter.tryAcquire()) {
+                    return;
+                }
+                if (!circuitBreaker.allowRequest()) {
+                    limiter.cancel();
+                    if (circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+                        // Wait for the trial operation; it starts the queue again when done
+                        return;
+                    }
+                    // Fail everything waiting rather than leave it until the breaker closes
+                    rejection = "MongoDB is failing, not trying again yet";
+                    rejections += queue.size();
+                }
+                next = queue.poll();
+            }
+            if (rejection != null) {
+                failAll(next, rejection);
+                return;
+            }
+            try {
+                threads.execute(() -> run(next));
+            } catch (RejectedExecutionException e) {
+                limiter.cancel();
+                next.onFailure.onFailure(e);
+                return;
+            }
+        }
+    }
+
+    private void failAll(QueuedOperation first, String rejection) {
+        ArrayDeque<QueuedOperation> rejected;
+        synchronized (this) {
+            rejected = new ArrayDeque<>(queue);
+            queue.clear();
+        }
+        rejected.addFirst(first);
+        Log.w(TAG, rejection + ", failing " + rejected.size() + " queued requests");
+        for (QueuedOperation operation : rejected) {
+            operation.onFailure.onFailure(new RejectedExecutionException(rejection));
+        }
+    }
+
+    private void run(QueuedOperation queued) {
+        long start = System.currentTimeMillis();
+        boolean success = false;
+        Exception failure = null;
+        try {
+            queued.operation.run();
+            success = true;
+        } catch (Exception e) {
+            failure = e;
+        }
+        long latencyMs = System.currentTimeMillis() - start;
+        // A client error is an answer about this request, not a sign the backend is down
+        boolean backendFailed = !success && !(failure instanceof HttpStatusException
+                && ((HttpStatusException) failure).isClientError());
+        limiter.release(latencyMs, !backendFailed);
+        if (backendFailed) {
+            circuitBreaker.recordFailure();
+        } else {
+            circuitBreaker.recordSuccess();
+        }
+        if (!success) {
+            queued.onFailure.onFailure(failure);
+        }
+        startQueued();
+    }
+
+    /**
+     * Background work that throws when the backend could not do it
+     */
+    interface Operation {
+        void run() throws Exception;
+    }
+
+    interface FailureHandler {
+        void onFailure(Exception e);
+    }
+
+    private static class QueuedOperation {
+        final Operation operation;
+        final FailureHandler onFailure;
+
+        QueuedOperation(Operation operation, FailureHandler onFailure) {
+            this.operation = operation;
+            this.onFailure = onFailure;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.smart_todo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Remembers how far this device has synced with MongoDB Atlas.
+ * The watermark is the newest updatedAt seen on the server; the next sync asks only
+ * for documents changed after it.
+ */
+public class MongoSyncState {
+    private static final String PREFS_NAME = "mongo_sync";
+    private static final String KEY_WATERMARK = "watermark";
+
+    private static MongoSyncState instance;
+
+    private final SharedPreferences sharedPreferences;
+
+    private MongoSyncState(Context context) {
+        sharedPreferences = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized MongoSyncState getInstance(Context context) {
+        if (instance == null) {
+            instance = new MongoSyncState(context);
+        }
+        return instance;
+    }
+
+    /**
+     * The watermark of the last completed sync, or 0 if this device has never synced
+     */
+    public long getWatermark() {
+        return sharedPreferences.getLong(KEY_WATERMARK, 0);
+    }
+
+    public void setWatermark(long watermark) {
+        if (watermark > getWatermark()) {
+            sharedPreferences.edit().putLong(KEY_WATERMARK, watermark).apply();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.smart_todo;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes Data API find responses straight from the response stream.
+ * Each task is built field by field as its document is read, so the body is never
+ * held as a String or a JsonObject tree alongside the decoded tasks.
+ */
+class MongoTaskReader {
+
+    /**
+     * Read the documents of one find response
+     */
+    static Page readPage(Reader source) throws IOException {
+        return readPage(source, null);
+    }
+
+    /**
+     * Read the documents of a find sent with the given projection, or null for whole
+     * documents. Without a projected description the tasks' descriptions are left
+     * unloaded rather than empty.
+     */
+    static Page readPage(Reader source, JsonObject projection) throws IOException {
+        boolean withDescriptions = projection == null || projection.has("description");
+        Page page = new Page();
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("documents") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readDocument(reader, page, withDescriptions);
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return page;
+    }
+
+    private static void readDocument(JsonReader reader, Page page, boolean withDescriptions)
+            throws IOException {
+        String id = null;
+        String name = null;
+        String description = null;
+        String category = null;
+        String time = null;
+        Date createdAt = null;
+        Date dueDate = null;
+        long updatedAt = 0;
+        boolean completed = false;
+        boolean important = false;
+        boolean deleted = false;
+        int priority = 0;
+        boolean hasPriority = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "description":
+                    description = reader.nextString();
+                    break;
+                case "category":
+                    category = reader.nextString();
+                    break;
+                case "time":
+                    time = reader.nextString();
+                    break;
+                case "createdAt":
+                    createdAt = new Date(reader.nextLong());
+                    break;
+                case "dueDate":
+                    dueDate = new Date(reader.nextLong());
+                    break;
+                case "updatedAt":
+                    updatedAt = reader.nextLong();
+                    break;
+                case "completed":
+                    completed = reader.nextBoolean();
+                    break;
+                case "important":
+                    important = reader.nextBoolean();
+                    break;
+                case "deleted":
+                    deleted = reader.nextBoolean();
+                    break;
+                case "priority":
+                    priority = reader.nextInt();
+                    hasPriority = true;
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        page.documentCount++;
+        if (id != null) {
+            page.lastId = id;
+        }
+        page.maxUpdatedAt = Math.max(page.maxUpdatedAt, updatedAt);
+        if (deleted) {
+            if (id != null) {
+                page.deletedTasks.put(id, updatedAt);
+            }
+            return;
+        }
+
+        Task task = Task.restore(id != null ? TaskId.fromString(id) : null, createdAt);
+        if (name != null) task.setName(name);
+        if (!withDescriptions) {
+            task.setDescription(null);
+        } else if (description != null) {
+            task.setDescription(description);
+        }
+        if (category != null) task.setCategory(category);
+        if (time != null) task.setTime(time);
+        task.setCompleted(completed);
+        task.setImportant(important);
+        if (hasPriority) task.setPriority(priority);
+        if (dueDate != null) task.setDueDate(dueDate);
+        if (updatedAt > 0) task.setUpdatedAt(updatedAt);
+        task.clearDirtyFields();
+        page.tasks.add(task);
+    }
+
+    /**
+     * The decoded documents of one response
+     */
+    static class Page {
+        private final List<Task> tasks = new ArrayList<>();
+        // Deletion time of each tombstone, by ID
+        private final Map<String, Long> deletedTasks = new HashMap<>();
+        private int documentCount;
+        private String lastId;
+        private long maxUpdatedAt;
+
+        List<Task> getTasks() {
+            return tasks;
+        }
+
+        Map<String, Long> getDeletedTasks() {
+            return deletedTasks;
+        }
+
+        /**
+         * Number of documents read, tombstones included
+         */
+        int getDocumentCount() {
+            return documentCount;
+        }
+
+        /**
+         * ID of the last document, where the next page continues from
+         */
+        String getLastId() {
+            return lastId;
+        }
+
+        long getMaxUpdatedAt() {
+            return maxUpdatedAt;
+        }
+    }
+}
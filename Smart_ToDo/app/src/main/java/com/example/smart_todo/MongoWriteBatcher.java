@@ -0,0 +1,737 @@
+package com.example.smart_todo;
+
+import android.util.Log;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Sends task writes to MongoDB Atlas from a durable outbox, as a few bulk requests.
+ * Every write is stored in MongoOutbox first. The outbox is drained after a short window,
+ * or as soon as enough writes have queued, and each batch is coalesced per task. A batch
+ * goes out as at most one insertMany, plus one updateMany for each distinct update
+ * document, tombstones included, among the tasks changed within one window of each
+ * other. Such a group is stamped with the latest updatedAt in it, so a task's time can
+ * move forward by up to the window but never back. Writes leave the outbox only once the server
+ * has answered; requests that fail are retried with exponential backoff, and whatever an
+ * earlier run left behind is sent on startup.
+ */
+class MongoWriteBatcher {
+    private static final String TAG = "MongoWriteBatcher";
+
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+
+    private final MongoOutbox outbox;
+    private final RequestRunner requestRunner;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService sendExecutor;
+    private final Random random = new Random();
+
+    // Only touched on the send thread
+    // Callbacks for the writes made by this process, by outbox sequence number
+    private final Map<Long, MongoDBTaskManager.TaskOperationCallback> callbacks = new HashMap<>();
+    private ScheduledFuture<?> scheduledDrain;
+    private long scheduledDrainAt;
+    private int consecutiveFailures;
+
+    // Tasks whose delete the server has not taken yet; read from other threads
+    private final Set<String> pendingDeletes = ConcurrentHashMap.newKeySet();
+
+    // Metrics, guarded by this
+    private long sentWrites;
+    private long sentRequests;
+
+    /**
+     * @param requestRunner sends the bulk requests; MongoDBConfig::executeRequest in the app
+     */
+    MongoWriteBatcher(MongoOutbox outbox, RequestRunner requestRunner, long windowMs, int maxBatchSize) {
+        this.outbox = outbox;
+        this.requestRunner = requestRunner;
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+        this.sendExecutor = Executors.newSingleThreadScheduledExecutor();
+        sendExecutor.execute(() -> pendingDeletes.addAll(outbox.findTaskIds(MongoOutbox.OP_DELETE)));
+        flush();
+    }
+
+    void insert(String taskId, JsonObject document, MongoDBTaskManager.TaskOperationCallback callback) {
+        submit(taskId, MongoOutbox.OP_INSERT, document, callback);
+    }
+
+    /**
+     * Queue an update; tasks queued with equal update documents apart from updatedAt,
+     * changed within one window of each other, share one updateMany
+     */
+    void update(String taskId, JsonObject update, MongoDBTaskManager.TaskOperationCallback callback) {
+        submit(taskId, MongoOutbox.OP_UPDATE, update, callback);
+    }
+
+    /**
+     * Queue a delete. The tombstone is stamped with the time of the deletion rather than
+     * the time it is sent, so a later edit on another device still wins.
+     */
+    void delete(String taskId, long deletedAt, MongoDBTaskManager.TaskOperationCallback callback) {
+        pendingDeletes.add(taskId);
+        submit(taskId, MongoOutbox.OP_DELETE, tombstone(deletedAt), callback);
+    }
+
+    /**
+     * Whether a delete of the task is queued or being sent
+     */
+    boolean isDeletePending(String taskId) {
+        return pendingDeletes.contains(taskId);
+    }
+
+    boolean hasPendingDeletes() {
+        return !pendingDeletes.isEmpty();
+    }
+
+    /**
+     * Send everything in the outbox now, without waiting for the window or a backoff to end.
+     * Used on startup, when the app goes to the background and when the network comes back.
+     */
+    void flush() {
+        sendExecutor.execute(() -> {
+            consecutiveFailures = 0;
+            drain();
+        });
+    }
+
+    /**
+     * Send what is queued and stop the send thread. The app's batcher belongs to the
+     * MongoDBTaskManager singleton and is never shut down; this is for batchers that
+     * are dropped, such as those made by tests.
+     */
+    void shutdown() {
+        flush();
+        sendExecutor.shutdown();
+    }
+
+    /**
+     * Average number of writes carried by each HTTP request
+     */
+    synchronized double getWritesPerRequest() {
+        return sentRequests > 0 ? (double) sentWrites / sentRequests : 0;
+    }
+
+    private void submit(String taskId, int op, JsonObject document,
+                        MongoDBTaskManager.TaskOperationCallback callback) {
+        sendExecutor.execute(() -> {
+            long seq;
+            try {
+                seq = outbox.append(taskId, op, document);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error storing write for task " + taskId, e);
+                if (op == MongoOutbox.OP_DELETE) {
+                    pendingDeletes.remove(taskId);
+                }
+                if (callback != null) {
+                    callback.onError("Error storing task write: " + e.getMessage());
+                }
+                return;
+            }
+            if (callback != null) {
+                callbacks.put(seq, callback);
+            }
+            if (consecutiveFailures > 0) {
+                // Waiting out a backoff; the write goes with the next retry
+                return;
+            }
+            if (outbox.size() >= maxBatchSize) {
+                drain();
+            } else {
+                scheduleDrain(windowMs);
+            }
+        });
+    }
+
+    /**
+     * Drain after the delay, unless a drain is already due sooner
+     */
+    private void scheduleDrain(long delayMs) {
+        long drainAt = System.currentTimeMillis() + delayMs;
+        if (scheduledDrain != null && !scheduledDrain.isDone()) {
+            if (scheduledDrainAt <= drainAt) {
+                return;
+            }
+            scheduledDrain.cancel(false);
+        }
+        scheduledDrainAt = drainAt;
+        scheduledDrain = sendExecutor.schedule(this::drain, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Send the outbox a batch at a time until it is empty or a request fails;
+     * only ever runs on the send thread
+     */
+    private void drain() {
+        if (scheduledDrain != null) {
+            scheduledDrain.cancel(false);
+            scheduledDrain = null;
+        }
+        try {
+            while (true) {
+                List<MongoOutbox.Entry> entries = outbox.peek(maxBatchSize);
+                if (entries.isEmpty()) {
+                    consecutiveFailures = 0;
+                    return;
+                }
+                if (!sendBatch(entries)) {
+                    retryLater();
+                    return;
+                }
+                consecutiveFailures = 0;
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error draining the outbox", e);
+            retryLater();
+        }
+    }
+
+    /**
+     * Schedule the next drain with exponential backoff; the jitter keeps devices
+     * that lost the network together from all retrying at the same moment
+     */
+    private void retryLater() {
+        consecutiveFailures++;
+        long backoff = Math.min(MAX_BACKOFF_MS,
+                INITIAL_BACKOFF_MS << Math.min(consecutiveFailures - 1, 20));
+        long delay = backoff / 2 + (long) (random.nextDouble() * backoff);
+        Log.w(TAG, "Retrying task writes in " + delay + " ms");
+        scheduleDrain(delay);
+    }
+
+    /**
+     * Coalesce one batch of outbox entries per task and send it
+     * @return false if any of it has to be retried
+     */
+    private boolean sendBatch(List<MongoOutbox.Entry> entries) {
+        // Latest write per task ID, in the order the tasks were first touched
+        LinkedHashMap<String, PendingWrite> batch = new LinkedHashMap<>();
+        for (MongoOutbox.Entry entry : entries) {
+            PendingWrite queued = batch.get(entry.taskId);
+            if (queued == null) {
+                batch.put(entry.taskId, new PendingWrite(entry));
+            } else {
+                coalesce(queued, entry);
+                if (queued.cancelled) {
+                    batch.remove(entry.taskId);
+                    complete(queued, true, "Task created and deleted before it was sent");
+                }
+            }
+        }
+
+        List<PendingWrite> inserts = new ArrayList<>();
+        List<PendingWrite> others = new ArrayList<>();
+        for (PendingWrite write : batch.values()) {
+            (write.op == MongoOutbox.OP_INSERT ? inserts : others).add(write);
+        }
+
+        boolean sent = true;
+        if (!inserts.isEmpty()) {
+            sent &= sendInserts(inserts);
+        }
+        sent &= sendUpdatesAndDeletes(others);
+        Log.d(TAG, "Sent " + entries.size() + " task writes" + (sent ? "" : ", some left to retry"));
+        return sent;
+    }
+
+    /**
+     * Send updates and deletes, those with the same document apart from updatedAt together
+     * @return false if any of them has to be retried
+     */
+    private boolean sendUpdatesAndDeletes(List<PendingWrite> writes) {
+        LinkedHashMap<String, List<PendingWrite>> updates = new LinkedHashMap<>();
+        LinkedHashMap<String, List<PendingWrite>> deletes = new LinkedHashMap<>();
+        for (PendingWrite write : writes) {
+            group(write.op == MongoOutbox.OP_DELETE ? deletes : updates, write);
+        }
+
+        boolean sent = true;
+        for (List<PendingWrite> group : updates.values()) {
+            for (List<PendingWrite> run : splitByUpdatedAt(group)) {
+                sent &= sendUpdates(run);
+            }
+        }
+        for (List<PendingWrite> group : deletes.values()) {
+            for (List<PendingWrite> run : splitByUpdatedAt(group)) {
+                sent &= sendDeletes(run);
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Group writes by their document without updatedAt, which differs for nearly every
+     * toggle or delete
+     */
+    private static void group(Map<String, List<PendingWrite>> groups, PendingWrite write) {
+        JsonObject document = write.document.deepCopy();
+        JsonObject fields = document.getAsJsonObject("$set");
+        if (fields != null) {
+            fields.remove("updatedAt");
+        }
+        String key = document.toString();
+        List<PendingWrite> group = groups.get(key);
+        if (group == null) {
+            group = new ArrayList<>();
+            groups.put(key, group);
+        }
+        group.add(write);
+    }
+
+    /**
+     * Split a group into runs of writes changed within one window of the run's first, so
+     * stamping a run with its latest time moves no task's updatedAt forward by more than that
+     */
+    private List<List<PendingWrite>> splitByUpdatedAt(List<PendingWrite> group) {
+        List<PendingWrite> sorted = new ArrayList<>(group);
+        sorted.sort((a, b) -> Long.compare(updatedAtOf(a.document), updatedAtOf(b.document)));
+        List<List<PendingWrite>> runs = new ArrayList<>();
+        List<PendingWrite> run = null;
+        long runStart = 0;
+        for (PendingWrite write : sorted) {
+            long updatedAt = updatedAtOf(write.document);
+            if (run == null || updatedAt - runStart > windowMs) {
+                run = new ArrayList<>();
+                runs.add(run);
+                runStart = updatedAt;
+            }
+            run.add(write);
+        }
+        return runs;
+    }
+
+    /**
+     * The update document shared by the writes, stamped with the latest updatedAt among them
+     */
+    private static JsonObject stampedDocument(List<PendingWrite> writes) {
+        JsonObject document = writes.get(0).document;
+        long latest = updatedAtOf(document);
+        for (PendingWrite write : writes) {
+            if (updatedAtOf(write.document) > latest) {
+                document = write.document;
+                latest = updatedAtOf(document);
+            }
+        }
+        return document;
+    }
+
+    private static long updatedAtOf(JsonObject update) {
+        JsonObject fields = update.getAsJsonObject("$set");
+        return fields != null && fields.has("updatedAt") ? fields.get("updatedAt").getAsLong() : 0;
+    }
+
+    /**
+     * Fold a later outbox entry into the write already batched for the same task
+     */
+    private static void coalesce(PendingWrite queued, MongoOutbox.Entry entry) {
+        queued.seqs.add(entry.seq);
+        queued.retried |= entry.attempts > 0;
+        switch (entry.op) {
+            case MongoOutbox.OP_DELETE:
+                // A task created and deleted before it was sent never needs sending,
+                // unless an earlier attempt may have stored it after all
+                queued.cancelled = queued.op == MongoOutbox.OP_INSERT && !queued.retried;
+                queued.op = MongoOutbox.OP_DELETE;
+                queued.document = entry.document;
+                queued.foldedUpdate = null;
+                break;
+            case MongoOutbox.OP_UPDATE:
+                if (queued.op == MongoOutbox.OP_INSERT) {
+                    // Apply the update to the document still waiting to be inserted
+                    JsonObject fields = entry.document.getAsJsonObject("$set");
+                    if (fields != null) {
+                        for (Map.Entry<String, JsonElement> field : fields.entrySet()) {
+                            queued.document.add(field.getKey(), field.getValue());
+                        }
+                    }
+                    // Kept too, in case an earlier attempt stored the insert without it
+                    if (queued.foldedUpdate == null) {
+                        queued.foldedUpdate = entry.document.deepCopy();
+                    } else {
+                        mergeUpdates(queued.foldedUpdate, entry.document);
+                    }
+                } else if (queued.op == MongoOutbox.OP_UPDATE) {
+                    mergeUpdates(queued.document, entry.document);
+                }
+                break;
+            default:
+                queued.op = entry.op;
+                queued.document = entry.document;
+                break;
+        }
+    }
+
+    /**
+     * Merge a later update document into an earlier one, operator by operator
+     */
+    private static void mergeUpdates(JsonObject target, JsonObject later) {
+        for (Map.Entry<String, JsonElement> operator : later.entrySet()) {
+            JsonObject fields = target.getAsJsonObject(operator.getKey());
+            if (fields == null) {
+                target.add(operator.getKey(), operator.getValue().deepCopy());
+                continue;
+            }
+            for (Map.Entry<String, JsonElement> field
+                    : operator.getValue().getAsJsonObject().entrySet()) {
+                fields.add(field.getKey(), field.getValue());
+            }
+        }
+    }
+
+    /**
+     * Inserts are the only writes that are not safe to repeat. The task ID is their
+     * idempotency key: before an insert that was tried before is sent again, the server
+     * is asked which of the IDs it already has, and those count as saved. Updates folded
+     * into such an insert were never sent, so they go out as an update instead.
+     * @return false if the inserts have to be retried
+     */
+    private boolean sendInserts(List<PendingWrite> writes) {
+        try {
+            if (anyRetried(writes)) {
+                Set<TaskId> stored = findStoredIds(taskIdsOf(writes));
+                List<PendingWrite> remaining = new ArrayList<>();
+                List<PendingWrite> updates = new ArrayList<>();
+                for (PendingWrite write : writes) {
+                    if (!stored.contains(TaskId.fromString(write.taskId))) {
+                        remaining.add(write);
+                    } else if (write.foldedUpdate != null) {
+                        write.op = MongoOutbox.OP_UPDATE;
+                        write.document = write.foldedUpdate;
+                        write.foldedUpdate = null;
+                        updates.add(write);
+                    } else {
+                        complete(write, true, "Task saved successfully");
+                    }
+                }
+                boolean sent = updates.isEmpty() || sendUpdatesAndDeletes(updates);
+                if (remaining.isEmpty()) {
+                    return sent;
+                }
+                return sendInsertMany(remaining) && sent;
+            }
+            return sendInsertMany(writes);
+        } catch (IOException e) {
+            return keepForRetry(writes, e);
+        }
+    }
+
+    /**
+     * Send the inserts as one insertMany
+     * @return false if the inserts have to be retried
+     */
+    private boolean sendInsertMany(List<PendingWrite> writes) {
+        try {
+            JsonArray documents = new JsonArray();
+            for (PendingWrite write : writes) {
+                documents.add(write.document);
+            }
+            JsonObject result = execute(MongoDBConfig.createInsertManyRequest(documents), writes);
+            if (result == null) {
+                return true;
+            }
+            int inserted = result.has("insertedIds") ? result.getAsJsonArray("insertedIds").size() : 0;
+            if (inserted == writes.size()) {
+                completeAll(writes, true, "Task saved successfully");
+            } else {
+                Log.e(TAG, "insertMany stored " + inserted + " of " + writes.size() + " tasks");
+                completeAll(writes, false, "Failed to save task");
+            }
+            return true;
+        } catch (RejectedRequestException e) {
+            return sendSeparately(writes, this::sendInserts);
+        } catch (IOException e) {
+            return keepForRetry(writes, e);
+        }
+    }
+
+    /**
+     * Send writes with the same update document, apart from updatedAt, as one updateMany
+     * @return false if the updates have to be retried
+     */
+    private boolean sendUpdates(List<PendingWrite> writes) {
+        try {
+            JsonObject result = execute(MongoDBConfig.createUpdateManyRequest(
+                    idsFilter(taskIdsOf(writes)), stampedDocument(writes)), writes);
+            if (result == null) {
+                return true;
+            }
+            // Matched rather than modified: an update that changes nothing still found its task
+            int matched = result.has("matchedCount") ? result.get("matchedCount").getAsInt() : 0;
+            if (matched == writes.size()) {
+                completeAll(writes, true, "Task updated successfully");
+            } else if (writes.size() == 1) {
+                Log.w(TAG, "No task found to update with ID: " + writes.get(0).taskId);
+                completeAll(writes, false, "Task not found");
+            } else {
+                // The count does not say which ones were missing
+                Log.w(TAG, "updateMany matched " + matched + " of " + writes.size() + " tasks");
+                completeAll(writes, true, "Task updated");
+            }
+            return true;
+        } catch (RejectedRequestException e) {
+            return sendSeparately(writes, this::sendUpdates);
+        } catch (IOException e) {
+            return keepForRetry(writes, e);
+        }
+    }
+
+    /**
+     * Deleted tasks are kept as tombstones, so other devices learn of the deletion when they sync
+     * @return false if the deletes have to be retried
+     */
+    private boolean sendDeletes(List<PendingWrite> writes) {
+        try {
+            JsonObject result = execute(MongoDBConfig.createUpdateManyRequest(
+                    idsFilter(taskIdsOf(writes)), stampedDocument(writes)), writes);
+            if (result == null) {
+                return true;
+            }
+            int deleted = result.has("matchedCount") ? result.get("matchedCount").getAsInt() : 0;
+            if (deleted == writes.size()) {
+                completeAll(writes, true, "Task deleted successfully");
+            } else if (writes.size() == 1) {
+                Log.w(TAG, "No task found to delete with ID: " + writes.get(0).taskId);
+                completeAll(writes, false, "Task not found");
+            } else {
+                Log.w(TAG, "Marked " + deleted + " of " + writes.size() + " tasks deleted");
+                completeAll(writes, true, "Task deleted");
+            }
+            return true;
+        } catch (RejectedRequestException e) {
+            return sendSeparately(writes, this::sendDeletes);
+        } catch (IOException e) {
+            return keepForRetry(writes, e);
+        }
+    }
+
+    /**
+     * Which of the given IDs the server already has, tombstones included.
+     * Only the ID and deletion fields are fetched.
+     */
+    private Set<TaskId> findStoredIds(List<String> taskIds) throws IOException {
+        JsonObject sort = new JsonObject();
+        sort.addProperty("id", 1);
+        JsonObject projection = new JsonObject();
+        projection.addProperty("id", 1);
+        projection.addProperty("deleted", 1);
+        Request request = MongoDBConfig.createFindRequest(idsFilter(taskIds), sort, taskIds.size(), projection);
+        Set<TaskId> stored = new HashSet<>();
+        try (Response response = requestRunner.execute(request)) {
+            countRequest(0);
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP error: " + response.code());
+            }
+            MongoTaskReader.Page page = MongoTaskReader.readPage(response.body().charStream());
+            for (Task task : page.getTasks()) {
+                stored.add(task.getTaskId());
+            }
+            for (String deletedId : page.getDeletedTasks().keySet()) {
+                stored.add(TaskId.fromString(deletedId));
+            }
+        }
+        return stored;
+    }
+
+    private static boolean anyRetried(List<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            if (write.retried) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The update that marks a task deleted as of the given time
+     */
+    private static JsonObject tombstone(long deletedAt) {
+        JsonObject fields = new JsonObject();
+        fields.addProperty("deleted", true);
+        fields.addProperty("updatedAt", deletedAt);
+        JsonObject update = new JsonObject();
+        update.add("$set", fields);
+        return update;
+    }
+
+    private static List<String> taskIdsOf(List<PendingWrite> writes) {
+        List<String> taskIds = new ArrayList<>(writes.size());
+        for (PendingWrite write : writes) {
+            taskIds.add(write.taskId);
+        }
+        return taskIds;
+    }
+
+    private static JsonObject idsFilter(List<String> taskIds) {
+        JsonObject filter = new JsonObject();
+        if (taskIds.size() == 1) {
+            filter.addProperty("id", taskIds.get(0));
+            return filter;
+        }
+        JsonArray ids = new JsonArray();
+        for (String taskId : taskIds) {
+            ids.add(taskId);
+        }
+        JsonObject in = new JsonObject();
+        in.add("$in", ids);
+        filter.add("id", in);
+        return filter;
+    }
+
+    /**
+     * Run one bulk request
+     * @return the parsed result, or null if the server rejected its only write as
+     *         malformed, in which case the write has been dropped and told
+     * @throws RejectedRequestException if the server rejected a request of several writes
+     *         as malformed, which does not say which of them is at fault
+     * @throws IOException if it failed in a way that is worth retrying
+     */
+    private JsonObject execute(Request request, List<PendingWrite> writes) throws IOException {
+        try (Response response = requestRunner.execute(request)) {
+            countRequest(writes.size());
+            if (response.isSuccessful()) {
+                try {
+                    return JsonParser.parseString(response.body().string()).getAsJsonObject();
+                } catch (RuntimeException e) {
+                    throw new IOException("Unreadable response", e);
+                }
+            }
+            int code = response.code();
+            Log.e(TAG, "HTTP error sending " + writes.size() + " task writes: " + code);
+            String errorBody = response.body() != null ? response.body().string() : "No error details";
+            Log.e(TAG, "Error response: " + errorBody);
+            if (code != 400 && code != 413 && code != 422) {
+                // Timeouts, throttling, server errors and expired or revoked credentials
+                // can all clear up, so the writes stay queued
+                throw new IOException("HTTP error: " + code);
+            }
+            if (writes.size() > 1) {
+                throw new RejectedRequestException(code);
+            }
+            // The server will never take this write; retrying would only repeat the answer
+            completeAll(writes, false, "HTTP error: " + code);
+            return null;
+        }
+    }
+
+    /**
+     * Send each write in a request of its own, so only the malformed ones are dropped
+     * @return false if any of them has to be retried
+     */
+    private boolean sendSeparately(List<PendingWrite> writes, Predicate<List<PendingWrite>> sender) {
+        Log.w(TAG, "Request of " + writes.size() + " task writes rejected, sending them one by one");
+        boolean sent = true;
+        for (PendingWrite write : writes) {
+            sent &= sender.test(Collections.singletonList(write));
+        }
+        return sent;
+    }
+
+    /**
+     * Leave the writes in the outbox for the next drain; their callbacks stay pending
+     */
+    private boolean keepForRetry(List<PendingWrite> writes, IOException e) {
+        Log.w(TAG, "Error sending " + writes.size() + " task writes, will retry", e);
+        List<Long> seqs = new ArrayList<>();
+        for (PendingWrite write : writes) {
+            seqs.addAll(write.seqs);
+        }
+        outbox.markAttempted(seqs);
+        return false;
+    }
+
+    private synchronized void countRequest(int writes) {
+        sentRequests++;
+        sentWrites += writes;
+    }
+
+    /**
+     * The write is done with, one way or the other: drop it from the outbox and tell its callers
+     */
+    private void complete(PendingWrite write, boolean success, String message) {
+        outbox.remove(write.seqs);
+        if (write.op == MongoOutbox.OP_DELETE) {
+            pendingDeletes.remove(write.taskId);
+        }
+        for (long seq : write.seqs) {
+            MongoDBTaskManager.TaskOperationCallback callback = callbacks.remove(seq);
+            if (callback == null) {
+                continue;
+            }
+            if (success) {
+                callback.onSuccess(message);
+            } else {
+                callback.onError(message);
+            }
+        }
+    }
+
+    private void completeAll(List<PendingWrite> writes, boolean success, String message) {
+        for (PendingWrite write : writes) {
+            complete(write, success, message);
+        }
+    }
+
+    /**
+     * Runs one HTTP request synchronously
+     */
+    interface RequestRunner {
+        Response execute(Request request) throws IOException;
+    }
+
+    /**
+     * A request of several writes that the server refused as malformed
+     */
+    private static class RejectedRequestException extends IOException {
+        RejectedRequestException(int code) {
+            super("HTTP error: " + code);
+        }
+    }
+
+    private static class PendingWrite {
+        final String taskId;
+        int op;
+        // The document to insert, the update document or the tombstone update
+        JsonObject document;
+        // For an insert, the updates folded into its document, merged
+        JsonObject foldedUpdate;
+        boolean cancelled;
+        // Whether any of the coalesced entries has been sent before without an answer
+        boolean retried;
+        // Outbox entries folded into this write
+        final List<Long> seqs = new ArrayList<>();
+
+        PendingWrite(MongoOutbox.Entry entry) {
+            this.taskId = entry.taskId;
+            this.op = entry.op;
+            this.document = entry.document;
+            this.retried = entry.attempts > 0;
+            seqs.add(entry.seq);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.smart_todo;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outbox kept in its own SQLite database, so it outlives the process.
+ * Only used from MongoWriteBatcher's send thread.
+ */
+class SqliteMongoOutbox extends SQLiteOpenHelper implements MongoOutbox {
+    private static final String TAG = "SqliteMongoOutbox";
+
+    private static final String DATABASE_NAME = "mongo_outbox.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_OUTBOX = "outbox";
+    private static final String COLUMN_SEQ = "seq";
+    private static final String COLUMN_TASK_ID = "task_id";
+    private static final String COLUMN_OP = "op";
+    // The document to insert, the update document or the tombstone update of a delete, as JSON
+    private static final String COLUMN_DOCUMENT = "document";
+    // Failed sends so far; an insert that was tried before may already be on the server
+    private static final String COLUMN_ATTEMPTS = "attempts";
+
+    private static final String[] ENTRY_COLUMNS = {
+            COLUMN_SEQ, COLUMN_TASK_ID, COLUMN_OP, COLUMN_DOCUMENT, COLUMN_ATTEMPTS
+    };
+
+    private static final String SQL_APPEND = "INSERT INTO " + TABLE_OUTBOX + " ("
+            + COLUMN_TASK_ID + ", " + COLUMN_OP + ", " + COLUMN_DOCUMENT + ") VALUES (?, ?, ?)";
+    private static final String SQL_REMOVE = "DELETE FROM " + TABLE_OUTBOX + " WHERE " + COLUMN_SEQ + " = ?";
+    private static final String SQL_MARK_ATTEMPTED = "UPDATE " + TABLE_OUTBOX + " SET "
+            + COLUMN_ATTEMPTS + " = " + COLUMN_ATTEMPTS + " + 1 WHERE " + COLUMN_SEQ + " = ?";
+
+    private static SqliteMongoOutbox instance;
+
+    // Compiled on first use and reused
+    private SQLiteStatement appendStatement;
+    private SQLiteStatement removeStatement;
+    private SQLiteStatement markAttemptedStatement;
+
+    private SqliteMongoOutbox(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    static synchronized SqliteMongoOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new SqliteMongoOutbox(context);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " ("
+                + COLUMN_SEQ + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COLUMN_TASK_ID + " TEXT NOT NULL, "
+                + COLUMN_OP + " INTEGER NOT NULL, "
+                + COLUMN_DOCUMENT + " TEXT NOT NULL, "
+                + COLUMN_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only one schema version so far
+    }
+
+    @Override
+    public long append(String taskId, int op, JsonObject document) {
+        prepareStatements();
+        appendStatement.bindString(1, taskId);
+        appendStatement.bindLong(2, op);
+        appendStatement.bindString(3, document.toString());
+        return appendStatement.executeInsert();
+    }
+
+    @Override
+    public List<Entry> peek(int limit) {
+        List<Entry> entries = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_OUTBOX, ENTRY_COLUMNS,
+                null, null, null, null, COLUMN_SEQ, String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                JsonObject document;
+                try {
+                    document = JsonParser.parseString(cursor.getString(3)).getAsJsonObject();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Dropping unreadable outbox entry " + cursor.getLong(0), e);
+                    remove(cursor.getLong(0));
+                    continue;
+                }
+                entries.add(new Entry(cursor.getLong(0), cursor.getString(1), cursor.getInt(2),
+                        document, cursor.getInt(4)));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public List<String> findTaskIds(int op) {
+        List<String> taskIds = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(true, TABLE_OUTBOX, new String[]{COLUMN_TASK_ID},
+                COLUMN_OP + " = ?", new String[]{String.valueOf(op)}, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                taskIds.add(cursor.getString(0));
+            }
+        }
+        return taskIds;
+    }
+
+    @Override
+    public int size() {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_OUTBOX);
+    }
+
+    @Override
+    public void remove(List<Long> seqs) {
+        prepareStatements();
+        runForEach(seqs, removeStatement);
+    }
+
+    @Override
+    public void markAttempted(List<Long> seqs) {
+        prepareStatements();
+        runForEach(seqs, markAttemptedStatement);
+    }
+
+    private void remove(long seq) {
+        prepareStatements();
+        removeStatement.bindLong(1, seq);
+        removeStatement.executeUpdateDelete();
+    }
+
+    /**
+     * Run a statement taking one sequence number for each of them, in one transaction
+     */
+    private void runForEach(List<Long> seqs, SQLiteStatement statement) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (long seq : seqs) {
+                statement.bindLong(1, seq);
+                statement.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void prepareStatements() {
+        if (appendStatement == null) {
+            SQLiteDatabase db = getWritableDatabase();
+            appendStatement = db.compileStatement(SQL_APPEND);
+            removeStatement = db.compileStatement(SQL_REMOVE);
+            markAttemptedStatement = db.compileStatement(SQL_MARK_ATTEMPTED);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.smart_todo;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Task store backed by the platform SQLite database.
+ * Each task is one row, with secondary indexes on the columns the tabs and queries
+ * filter by, so a filtered view reads only the rows it shows. Single-task writes go
+ * through statements compiled once and reused.
+ * On first launch the task list released versions kept in SharedPreferences is
+ * imported, and then removed from there.
+ */
+public class SqliteTaskStore extends SQLiteOpenHelper implements TaskStore {
+    private static final String TAG = "SqliteTaskStore";
+
+    private static final String DATABASE_NAME = "smart_todo.db";
+    private static final int DATABASE_VERSION = 2;
+
+    static final String TABLE_TASKS = "tasks";
+    static final String COLUMN_ID = "id";
+    // List order: lower comes first, new tasks take MIN - 1
+    static final String COLUMN_POSITION = "position";
+    static final String COLUMN_NAME = "name";
+    static final String COLUMN_DESCRIPTION = "description";
+    static final String COLUMN_CATEGORY = "category";
+    static final String COLUMN_TIME = "time";
+    static final String COLUMN_CREATED_AT = "created_at";
+    static final String COLUMN_DUE_DATE = "due_date";
+    static final String COLUMN_COMPLETED = "completed";
+    static final String COLUMN_IMPORTANT = "important";
+    static final String COLUMN_PRIORITY = "priority";
+    // Task.isToday() only depends on the time text, so it is stored to be indexable
+    static final String COLUMN_IS_TODAY = "is_today";
+    // Task.getUpdatedAt(), added in version 2
+    static final String COLUMN_UPDATED_AT = "updated_at";
+
+    private static final String[] TASK_COLUMNS = {
+            COLUMN_ID, COLUMN_NAME, COLUMN_DESCRIPTION, COLUMN_CATEGORY, COLUMN_TIME,
+            COLUMN_CREATED_AT, COLUMN_DUE_DATE, COLUMN_COMPLETED, COLUMN_IMPORTANT, COLUMN_PRIORITY,
+            COLUMN_UPDATED_AT
+    };
+    // Indexes into TASK_COLUMNS
+    private static final int INDEX_ID = 0;
+    private static final int INDEX_NAME = 1;
+    private static final int INDEX_DESCRIPTION = 2;
+    private static final int INDEX_CATEGORY = 3;
+    private static final int INDEX_TIME = 4;
+    private static final int INDEX_CREATED_AT = 5;
+    private static final int INDEX_DUE_DATE = 6;
+    private static final int INDEX_COMPLETED = 7;
+    private static final int INDEX_IMPORTANT = 8;
+    private static final int INDEX_PRIORITY = 9;
+    private static final int INDEX_UPDATED_AT = 10;
+
+    private static final String SQL_INSERT = "INSERT OR REPLACE INTO " + TABLE_TASKS + " ("
+            + COLUMN_NAME + ", " + COLUMN_DESCRIPTION + ", " + COLUMN_CATEGORY + ", " + COLUMN_TIME + ", "
+            + COLUMN_CREATED_AT + ", " + COLUMN_DUE_DATE + ", " + COLUMN_COMPLETED + ", "
+            + COLUMN_IMPORTANT + ", " + COLUMN_PRIORITY + ", " + COLUMN_IS_TODAY + ", "
+            + COLUMN_UPDATED_AT + ", " + COLUMN_ID + ", " + COLUMN_POSITION
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Binds the same first twelve arguments as SQL_INSERT
+    private static final String SQL_UPDATE = "UPDATE " + TABLE_TASKS + " SET "
+            + COLUMN_NAME + " = ?, " + COLUMN_DESCRIPTION + " = ?, " + COLUMN_CATEGORY + " = ?, "
+            + COLUMN_TIME + " = ?, " + COLUMN_CREATED_AT + " = ?, " + COLUMN_DUE_DATE + " = ?, "
+            + COLUMN_COMPLETED + " = ?, " + COLUMN_IMPORTANT + " = ?, " + COLUMN_PRIORITY + " = ?, "
+            + COLUMN_IS_TODAY + " = ?, " + COLUMN_UPDATED_AT + " = ? WHERE " + COLUMN_ID + " = ?";
+    private static final String SQL_DELETE = "DELETE FROM " + TABLE_TASKS + " WHERE " + COLUMN_ID + " = ?";
+    private static final String SQL_FIRST_POSITION =
+            "SELECT IFNULL(MIN(" + COLUMN_POSITION + "), 0) FROM " + TABLE_TASKS;
+    private static final String SQL_LAST_POSITION =
+            "SELECT IFNULL(MAX(" + COLUMN_POSITION + "), 0) FROM " + TABLE_TASKS;
+
+    private static SqliteTaskStore instance;
+
+    private final Context appContext;
+    private boolean importedLegacyTasks;
+
+    // Compiled on first write and reused; guarded by this
+    private SQLiteStatement insertStatement;
+    private SQLiteStatement updateStatement;
+    private SQLiteStatement deleteStatement;
+    private SQLiteStatement firstPositionStatement;
+    private SQLiteStatement lastPositionStatement;
+
+    private SqliteTaskStore(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+        appContext = context.getApplicationContext();
+    }
+
+    public static synchronized SqliteTaskStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new SqliteTaskStore(context);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_TASKS + " ("
+                + COLUMN_ID + " TEXT PRIMARY KEY, "
+                + COLUMN_POSITION + " INTEGER NOT NULL, "
+                + COLUMN_NAME + " TEXT, "
+                + COLUMN_DESCRIPTION + " TEXT, "
+                + COLUMN_CATEGORY + " TEXT, "
+                + COLUMN_TIME + " TEXT, "
+                + COLUMN_CREATED_AT + " INTEGER NOT NULL, "
+                + COLUMN_DUE_DATE + " INTEGER, "
+                + COLUMN_COMPLETED + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_IMPORTANT + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_PRIORITY + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_IS_TODAY + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0)");
+
+        // Each filtered index ends with position so rows come back already in list order
+        db.execSQL("CREATE INDEX idx_tasks_position ON " + TABLE_TASKS
+                + " (" + COLUMN_POSITION + ")");
+        db.execSQL("CREATE INDEX idx_tasks_completed ON " + TABLE_TASKS
+                + " (" + COLUMN_COMPLETED + ", " + COLUMN_POSITION + ")");
+        db.execSQL("CREATE INDEX idx_tasks_important ON " + TABLE_TASKS
+                + " (" + COLUMN_IMPORTANT + ", " + COLUMN_COMPLETED + ", " + COLUMN_POSITION + ")");
+        db.execSQL("CREATE INDEX idx_tasks_today ON " + TABLE_TASKS
+                + " (" + COLUMN_IS_TODAY + ", " + COLUMN_COMPLETED + ", " + COLUMN_POSITION + ")");
+        db.execSQL("CREATE INDEX idx_tasks_category ON " + TABLE_TASKS
+                + " (" + COLUMN_CATEGORY + ", " + COLUMN_COMPLETED + ", " + COLUMN_POSITION + ")");
+        db.execSQL("CREATE INDEX idx_tasks_due_date ON " + TABLE_TASKS
+                + " (" + COLUMN_DUE_DATE + ")");
+
+        importLegacyTasks(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            db.execSQL("ALTER TABLE " + TABLE_TASKS + " ADD COLUMN "
+                    + COLUMN_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0");
+            // Tasks stored before the change time was tracked count as unchanged since creation
+            db.execSQL("UPDATE " + TABLE_TASKS + " SET " + COLUMN_UPDATED_AT + " = " + COLUMN_CREATED_AT);
+        }
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (importedLegacyTasks) {
+            // The import is committed by now, so the old list can go
+            importedLegacyTasks = false;
+            new LegacyTaskPreferences(appContext).clear();
+        }
+    }
+
+    /**
+     * Copy the tasks kept in SharedPreferences into the new table.
+     * Runs inside the schema creation transaction: if the stored list cannot be read,
+     * the exception rolls the database back and the list is kept for the next attempt.
+     */
+    private void importLegacyTasks(SQLiteDatabase db) {
+        SQLiteStatement statement = db.compileStatement(SQL_INSERT);
+        int[] position = {0};
+        new LegacyTaskPreferences(appContext).streamTasks(task -> {
+            bindTask(statement, task);
+            statement.bindLong(13, position[0]++);
+            statement.executeInsert();
+        });
+        statement.close();
+        importedLegacyTasks = true;
+        Log.d(TAG, "Imported " + position[0] + " tasks from SharedPreferences");
+    }
+
+    @Override
+    public List<Task> loadTasks() {
+        return loadTasks(TaskFilter.all());
+    }
+
+    @Override
+    public List<Task> loadTasks(TaskFilter filter) {
+        List<Task> tasks = new ArrayList<>();
+        try (Cursor cursor = query(filter)) {
+            while (cursor.moveToNext()) {
+                tasks.add(readTask(cursor));
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public void streamTasks(TaskStreamCallback callback) {
+        try (Cursor cursor = query(TaskFilter.all())) {
+            while (cursor.moveToNext()) {
+                callback.onTask(readTask(cursor));
+            }
+        }
+    }
+
+    @Override
+    public int countTasks(TaskFilter filter) {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_TASKS,
+                filter.getSelection(), filter.getSelectionArgs());
+    }
+
+    @Override
+    public synchronized void saveTasks(List<Task> tasks) {
+        SQLiteDatabase db = getWritableDatabase();
+        prepareStatements(db);
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM " + TABLE_TASKS);
+            for (int i = 0; i < tasks.size(); i++) {
+                bindTask(insertStatement, tasks.get(i));
+                insertStatement.bindLong(13, i);
+                insertStatement.executeInsert();
+            }
+            db.setTransactionSuccessful();
+            Log.d(TAG, "Saved " + tasks.size() + " tasks");
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public synchronized void insertTask(Task task) {
+        prepareStatements(getWritableDatabase());
+        executeInsert(task);
+    }
+
+    @Override
+    public synchronized void updateTask(Task task) {
+        prepareStatements(getWritableDatabase());
+        executeUpdate(task);
+    }
+
+    @Override
+    public synchronized void deleteTask(TaskId taskId) {
+        prepareStatements(getWritableDatabase());
+        executeDelete(taskId);
+    }
+
+    /**
+     * Apply the changes in a single transaction, so a batch costs one commit
+     */
+    @Override
+    public synchronized void applyChanges(List<TaskRecord> records) {
+        SQLiteDatabase db = getWritableDatabase();
+        prepareStatements(db);
+        db.beginTransaction();
+        try {
+            for (TaskRecord record : records) {
+                switch (record.getOp()) {
+                    case TaskRecord.OP_INSERT:
+                        executeInsert(record.getTask());
+                        break;
+                    case TaskRecord.OP_DELETE:
+                        executeDelete(record.getTaskId());
+                        break;
+                    default:
+                        executeUpdate(record.getTask());
+                        break;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        getWritableDatabase().execSQL("DELETE FROM " + TABLE_TASKS);
+        Log.d(TAG, "Cleared all tasks from local storage");
+    }
+
+    private void executeInsert(Task task) {
+        long position = firstPositionStatement.simpleQueryForLong() - 1;
+        bindTask(insertStatement, task);
+        insertStatement.bindLong(13, position);
+        insertStatement.executeInsert();
+    }
+
+    private void executeUpdate(Task task) {
+        bindTask(updateStatement, task);
+        if (updateStatement.executeUpdateDelete() == 0) {
+            // Not stored yet; keep it rather than drop the change
+            long position = lastPositionStatement.simpleQueryForLong() + 1;
+            bindTask(insertStatement, task);
+            insertStatement.bindLong(13, position);
+            insertStatement.executeInsert();
+        }
+    }
+
+    private void executeDelete(TaskId taskId) {
+        deleteStatement.bindString(1, taskId.toString());
+        deleteStatement.executeUpdateDelete();
+    }
+
+    private Cursor query(TaskFilter filter) {
+        return getReadableDatabase().query(TABLE_TASKS, TASK_COLUMNS,
+                filter.getSelection(), filter.getSelectionArgs(), null, null, COLUMN_POSITION);
+    }
+
+    private void prepareStatements(SQLiteDatabase db) {
+        if (insertStatement == null) {
+            insertStatement = db.compileStatement(SQL_INSERT);
+            updateStatement = db.compileStatement(SQL_UPDATE);
+            deleteStatement = db.compileStatement(SQL_DELETE);
+            firstPositionStatement = db.compileStatement(SQL_FIRST_POSITION);
+            lastPositionStatement = db.compileStatement(SQL_LAST_POSITION);
+        }
+    }
+
+    /**
+     * Bind the task's columns to arguments 1-12, in the order SQL_INSERT and SQL_UPDATE share
+     */
+    private static void bindTask(SQLiteStatement statement, Task task) {
+        bindNullableString(statement, 1, task.getName());
+        bindNullableString(statement, 2, task.getDescription());
+        bindNullableString(statement, 3, task.getCategory());
+        bindNullableString(statement, 4, task.getTime());
+        statement.bindLong(5, task.getCreatedAt().getTime());
+        if (task.getDueDate() != null) {
+            statement.bindLong(6, task.getDueDate().getTime());
+        } else {
+            statement.bindNull(6);
+        }
+        statement.bindLong(7, task.isCompleted() ? 1 : 0);
+        statement.bindLong(8, task.isImportant() ? 1 : 0);
+        statement.bindLong(9, task.getPriority());
+        statement.bindLong(10, task.getTime() != null && task.isToday() ? 1 : 0);
+        statement.bindLong(11, task.getUpdatedAt());
+        statement.bindString(12, task.getTaskId().toString());
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    private static Task readTask(Cursor cursor) {
+        Task task = Task.restore(TaskId.fromString(cursor.getString(INDEX_ID)),
+                new Date(cursor.getLong(INDEX_CREATED_AT)));
+        task.setName(cursor.getString(INDEX_NAME));
+        task.setDescription(cursor.getString(INDEX_DESCRIPTION));
+        task.setCategory(cursor.getString(INDEX_CATEGORY));
+        task.setTime(cursor.getString(INDEX_TIME));
+        if (!cursor.isNull(INDEX_DUE_DATE)) {
+            task.setDueDate(new Date(cursor.getLong(INDEX_DUE_DATE)));
+        }
+        task.setCompleted(cursor.getInt(INDEX_COMPLETED) != 0);
+        task.setImportant(cursor.getInt(INDEX_IMPORTANT) != 0);
+        task.setPriority(cursor.getInt(INDEX_PRIORITY));
+        task.setUpdatedAt(cursor.getLong(INDEX_UPDATED_AT));
+        task.clearDirtyFields();
+        return task;
+    }
+}
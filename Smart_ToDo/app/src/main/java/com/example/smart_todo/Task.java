@@ -2,29 +2,76 @@ package com.example.smart_todo;
 
 import java.util.Date;
 import java.util.Objects;
-import java.util.UUID;
 
 public class Task {
-    private String id;
+    // Bits for the fields changed since they were last sent to the server
+    static final int FIELD_NAME = 1;
+    static final int FIELD_DESCRIPTION = 1 << 1;
+    static final int FIELD_CATEGORY = 1 << 2;
+    static final int FIELD_TIME = 1 << 3;
+    static final int FIELD_DUE_DATE = 1 << 4;
+    static final int FIELD_COMPLETED = 1 << 5;
+    static final int FIELD_IMPORTANT = 1 << 6;
+    static final int FIELD_PRIORITY = 1 << 7;
+    static final int ALL_FIELDS = (1 << 8) - 1;
+
+    private TaskId id;
     private String name;
     private String description;
     private String category;
     private String time;
     private Date createdAt;
     private Date dueDate;
+    // Time of the last change, in epoch millis; the newer copy wins when devices sync
+    private long updatedAt;
     private boolean completed;
     private boolean important;
     private int priority; // 0: Low, 1: Medium, 2: High
+    // isToday() depends only on time, so it is worked out once per time value
+    private Boolean today;
+    // FIELD_* bits; guarded by this, since sync threads take them
+    private int dirtyFields;
 
     public Task() {
-        this.id = UUID.randomUUID().toString();
-        this.createdAt = new Date();
+        this(TaskId.random(), new Date());
+    }
+
+    private Task(TaskId id, Date createdAt) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt.getTime();
         this.completed = false;
         this.important = false;
         this.priority = 0;
         this.description = "";
     }
 
+    /**
+     * A task with the ID and creation time it was stored with, for decoders.
+     * Missing values are filled in as for a new task.
+     */
+    static Task restore(TaskId id, Date createdAt) {
+        return new Task(id != null ? id : TaskId.random(), createdAt != null ? createdAt : new Date());
+    }
+
+    /**
+     * A copy of the stored fields, for code that reads the task on another thread
+     * while the UI may still change it
+     */
+    Task copy() {
+        Task copy = new Task(id, createdAt);
+        copy.name = name;
+        copy.description = description;
+        copy.category = category;
+        copy.time = time;
+        copy.dueDate = dueDate;
+        copy.updatedAt = updatedAt;
+        copy.completed = completed;
+        copy.important = important;
+        copy.priority = priority;
+        return copy;
+    }
+
     public Task(String name, String category, String time) {
         this();
         this.name = name;
@@ -34,6 +81,10 @@ public class Task {
 
     // Getters and Setters
     public String getId() {
+        return id.toString();
+    }
+
+    public TaskId getTaskId() {
         return id;
     }
 
@@ -42,15 +93,39 @@ public class Task {
     }
 
     public void setName(String name) {
-        this.name = name;
+        if (!Objects.equals(this.name, name)) {
+            this.name = name;
+            markDirty(FIELD_NAME);
+        }
     }
 
+    /**
+     * The description, or null if it has not been fetched yet
+     */
     public String getDescription() {
         return description;
     }
 
     public void setDescription(String description) {
-        this.description = description;
+        if (!Objects.equals(this.description, description)) {
+            this.description = description;
+            markDirty(FIELD_DESCRIPTION);
+        }
+    }
+
+    /**
+     * Whether the description is known. Tasks fetched as list summaries have none
+     * until it is loaded for the edit dialog.
+     */
+    public boolean isDescriptionLoaded() {
+        return description != null;
+    }
+
+    /**
+     * Fill in a description fetched on its own; it is not a change to send back
+     */
+    void setLoadedDescription(String description) {
+        this.description = description != null ? description : "";
     }
 
     public String getCategory() {
@@ -58,7 +133,10 @@ public class Task {
     }
 
     public void setCategory(String category) {
-        this.category = category;
+        if (!Objects.equals(this.category, category)) {
+            this.category = category;
+            markDirty(FIELD_CATEGORY);
+        }
     }
 
     public String getTime() {
@@ -66,19 +144,41 @@ public class Task {
     }
 
     public void setTime(String time) {
-        this.time = time;
+        if (!Objects.equals(this.time, time)) {
+            this.time = time;
+            this.today = null;
+            markDirty(FIELD_TIME);
+        }
     }
 
     public Date getCreatedAt() {
         return createdAt;
     }
 
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Record a local change; never moves backwards even if the clock does
+     */
+    void markUpdated() {
+        updatedAt = Math.max(System.currentTimeMillis(), updatedAt + 1);
+    }
+
     public Date getDueDate() {
         return dueDate;
     }
 
     public void setDueDate(Date dueDate) {
-        this.dueDate = dueDate;
+        if (!Objects.equals(this.dueDate, dueDate)) {
+            this.dueDate = dueDate;
+            markDirty(FIELD_DUE_DATE);
+        }
     }
 
     public boolean isCompleted() {
@@ -86,7 +186,10 @@ public class Task {
     }
 
     public void setCompleted(boolean completed) {
-        this.completed = completed;
+        if (this.completed != completed) {
+            this.completed = completed;
+            markDirty(FIELD_COMPLETED);
+        }
     }
 
     public boolean isImportant() {
@@ -94,7 +197,10 @@ public class Task {
     }
 
     public void setImportant(boolean important) {
-        this.important = important;
+        if (this.important != important) {
+            this.important = important;
+            markDirty(FIELD_IMPORTANT);
+        }
     }
 
     public int getPriority() {
@@ -102,19 +208,46 @@ public class Task {
     }
 
     public void setPriority(int priority) {
-        if (priority >= 0 && priority <= 2) {
+        if (priority >= 0 && priority <= 2 && this.priority != priority) {
             this.priority = priority;
+            markDirty(FIELD_PRIORITY);
         }
     }
 
+    /**
+     * Flag fields as changed, e.g. again after sending them failed
+     */
+    synchronized void markDirty(int fields) {
+        dirtyFields |= fields;
+    }
+
+    /**
+     * Forget changed fields, e.g. once a decoder has filled the task in
+     */
+    synchronized void clearDirtyFields() {
+        dirtyFields = 0;
+    }
+
+    /**
+     * The fields changed since the last call, as FIELD_* bits, and forget them
+     */
+    synchronized int takeDirtyFields() {
+        int fields = dirtyFields;
+        dirtyFields = 0;
+        return fields;
+    }
+
     public boolean isToday() {
-        // Check if time contains today or is for today
-        String lowerTime = time.toLowerCase();
-        return lowerTime.contains("today") || 
-               lowerTime.contains("morning") || 
-               lowerTime.contains("afternoon") || 
-               lowerTime.contains("evening") ||
-               lowerTime.contains("tonight");
+        if (today == null) {
+            // Check if time contains today or is for today
+            String lowerTime = time.toLowerCase();
+            today = lowerTime.contains("today") || 
+                    lowerTime.contains("morning") || 
+                    lowerTime.contains("afternoon") || 
+                    lowerTime.contains("evening") ||
+                    lowerTime.contains("tonight");
+        }
+        return today;
     }
     
     @Override
@@ -122,11 +255,11 @@ public class Task {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Task task = (Task) o;
-        return Objects.equals(id, task.id);
+        return id.equals(task.id);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return id.hashCode();
     }
 } 
\ No newline at end of file
@@ -10,22 +10,29 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder> {
     private List<Task> taskList;
     private OnTaskClickListener listener;
 
+    /**
+     * Click callbacks identify the task by its ID, which stays valid however the lists are filtered or sorted
+     */
     public interface OnTaskClickListener {
-        void onTaskClick(int position);
-        void onCheckBoxClick(int position, boolean isChecked);
-        void onEditClick(int position);
-        void onDeleteClick(int position);
-        void onImportantClick(int position);
+        void onTaskClick(TaskId taskId);
+        void onCheckBoxClick(TaskId taskId, boolean isChecked);
+        void onEditClick(TaskId taskId);
+        void onDeleteClick(TaskId taskId);
+        void onImportantClick(TaskId taskId);
     }
 
+    /**
+     * The adapter keeps its own copy of the list, so sorting it never reorders the caller's
+     */
     public TaskAdapter(List<Task> taskList, OnTaskClickListener listener) {
-        this.taskList = taskList;
+        this.taskList = new ArrayList<>(taskList);
         this.listener = listener;
     }
 
@@ -53,13 +60,7 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
             holder.taskName.setPaintFlags(holder.taskName.getPaintFlags() & ~android.graphics.Paint.STRIKE_THRU_TEXT_FLAG);
         }
         
-        // Set description if available
-        if (task.getDescription() != null && !task.getDescription().isEmpty()) {
-            holder.taskDescription.setText(task.getDescription());
-            holder.taskDescription.setVisibility(View.VISIBLE);
-        } else {
-            holder.taskDescription.setVisibility(View.GONE);
-        }
+        // No description here: list fetches leave it out, and the edit dialog loads it
         
         // Set category and time
         holder.taskCategory.setText(task.getCategory());
@@ -114,7 +115,7 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
     }
 
     public void updateTasks(List<Task> tasks) {
-        this.taskList = tasks;
+        this.taskList = new ArrayList<>(tasks);
         
         // Sort tasks: incomplete tasks first, then completed tasks
         java.util.Collections.sort(this.taskList, (task1, task2) -> {
@@ -134,7 +135,7 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
     }
 
     class TaskViewHolder extends RecyclerView.ViewHolder {
-        TextView taskName, taskCategory, taskTime, taskDescription;
+        TextView taskName, taskCategory, taskTime;
         CheckBox taskCheckBox;
         ImageView taskPriority, taskMenu;
 
@@ -143,58 +144,50 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
             taskName = itemView.findViewById(R.id.taskName);
             taskCategory = itemView.findViewById(R.id.taskCategory);
             taskTime = itemView.findViewById(R.id.taskTime);
-            taskDescription = itemView.findViewById(R.id.taskDescription);
             taskCheckBox = itemView.findViewById(R.id.taskCheckBox);
             taskPriority = itemView.findViewById(R.id.taskPriority);
             taskMenu = itemView.findViewById(R.id.taskMenu);
 
             itemView.setOnClickListener(v -> {
                 if (listener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
-                    listener.onTaskClick(getAdapterPosition());
+                    listener.onTaskClick(taskList.get(getAdapterPosition()).getTaskId());
                 }
             });
 
             taskCheckBox.setOnClickListener(v -> {
                 if (listener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
-                    listener.onCheckBoxClick(getAdapterPosition(), taskCheckBox.isChecked());
+                    listener.onCheckBoxClick(taskList.get(getAdapterPosition()).getTaskId(), taskCheckBox.isChecked());
                 }
             });
             
             taskMenu.setOnClickListener(v -> {
                 if (listener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
-                    showPopupMenu(v, getAdapterPosition());
+                    showPopupMenu(v, taskList.get(getAdapterPosition()).getTaskId());
                 }
             });
             
             taskPriority.setOnClickListener(v -> {
                 if (listener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
-                    listener.onImportantClick(getAdapterPosition());
+                    listener.onImportantClick(taskList.get(getAdapterPosition()).getTaskId());
                 }
             });
         }
 
-        private void showPopupMenu(View view, int position) {
-            android.util.Log.d("TaskAdapter", "showPopupMenu called for position: " + position);
-            
+        private void showPopupMenu(View view, TaskId taskId) {
             android.widget.PopupMenu popup = new android.widget.PopupMenu(view.getContext(), view);
             popup.inflate(R.menu.task_menu);
             popup.setOnMenuItemClickListener(item -> {
                 int itemId = item.getItemId();
-                android.util.Log.d("TaskAdapter", "Menu item clicked: " + itemId + " for position: " + position);
-                
                 if (itemId == R.id.action_edit) {
-                    android.util.Log.d("TaskAdapter", "Edit action selected for position: " + position);
-                    listener.onEditClick(position);
+                    listener.onEditClick(taskId);
                     return true;
                 } else if (itemId == R.id.action_delete) {
-                    android.util.Log.d("TaskAdapter", "Delete action selected for position: " + position);
-                    listener.onDeleteClick(position);
+                    listener.onDeleteClick(taskId);
                     return true;
                 }
                 return false;
             });
             popup.show();
-            android.util.Log.d("TaskAdapter", "Popup menu shown");
         }
     }
 } 
\ No newline at end of file
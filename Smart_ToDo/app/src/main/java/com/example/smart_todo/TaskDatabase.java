@@ -1,112 +1,141 @@
 package com.example.smart_todo;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class TaskDatabase {
     private static final String TAG = "TaskDatabase";
-    private static final String PREF_NAME = "smart_todo_prefs";
-    private static final String KEY_TASKS = "tasks";
-    
-    private final SharedPreferences sharedPreferences;
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-    
+
+    // Enough tasks to fill the first screen; later batches are larger to cut UI refreshes
+    private static final int FIRST_BATCH_SIZE = 20;
+    private static final int BATCH_SIZE = 200;
+    // Longest the UI thread waits for queued writes when the app is paused
+    private static final long PAUSE_FLUSH_TIMEOUT_MS = 1000;
+
+    private static final ExecutorService loadExecutor = Executors.newSingleThreadExecutor();
+
+    private final TaskStore taskStore;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
     public TaskDatabase(Context context) {
-        sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this(WriteBehindTaskStore.getInstance(context));
     }
-    
+
+    public TaskDatabase(TaskStore taskStore) {
+        this.taskStore = taskStore;
+    }
+
+    /**
+     * Replace all stored tasks with the given list.
+     * Prefer the single-task methods for individual changes.
+     */
     public void saveTasks(List<Task> tasks) {
-        try {
-            JSONArray jsonArray = new JSONArray();
-            
-            for (Task task : tasks) {
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("id", task.getId());
-                jsonObject.put("name", task.getName());
-                jsonObject.put("description", task.getDescription());
-                jsonObject.put("category", task.getCategory());
-                jsonObject.put("time", task.getTime());
-                jsonObject.put("createdAt", dateFormat.format(task.getCreatedAt()));
-                jsonObject.put("completed", task.isCompleted());
-                jsonObject.put("important", task.isImportant());
-                jsonObject.put("priority", task.getPriority());
-                
-                jsonArray.put(jsonObject);
-            }
-            
-            SharedPreferences.Editor editor = sharedPreferences.edit();
-            editor.putString(KEY_TASKS, jsonArray.toString());
-            editor.apply();
-            
-            Log.d(TAG, "Saved " + tasks.size() + " tasks to local storage");
-        } catch (JSONException e) {
-            Log.e(TAG, "Error saving tasks", e);
-        }
+        taskStore.saveTasks(tasks);
     }
-    
+
     public List<Task> loadTasks() {
-        List<Task> tasks = new ArrayList<>();
-        String tasksJson = sharedPreferences.getString(KEY_TASKS, "[]");
-        
-        try {
-            JSONArray jsonArray = new JSONArray(tasksJson);
-            
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject jsonObject = jsonArray.getJSONObject(i);
-                
-                Task task = new Task();
-                if (jsonObject.has("id")) {
-                    try {
-                        java.lang.reflect.Field idField = Task.class.getDeclaredField("id");
-                        idField.setAccessible(true);
-                        idField.set(task, jsonObject.getString("id"));
-                    } catch (Exception e) {
-                        Log.e(TAG, "Failed to set task ID", e);
-                    }
-                }
-                
-                task.setName(jsonObject.getString("name"));
-                task.setCategory(jsonObject.getString("category"));
-                task.setTime(jsonObject.getString("time"));
-                task.setCompleted(jsonObject.getBoolean("completed"));
-                
-                if (jsonObject.has("description")) {
-                    task.setDescription(jsonObject.getString("description"));
-                }
-                if (jsonObject.has("important")) {
-                    task.setImportant(jsonObject.getBoolean("important"));
-                }
-                if (jsonObject.has("priority")) {
-                    task.setPriority(jsonObject.getInt("priority"));
-                }
-                
-                tasks.add(task);
-            }
-            
-            Log.d(TAG, "Loaded " + tasks.size() + " tasks from local storage");
-        } catch (JSONException e) {
-            Log.e(TAG, "Error loading tasks", e);
+        return taskStore.loadTasks();
+    }
+
+    /**
+     * Load only the tasks matching the filter, in list order
+     */
+    public List<Task> loadTasks(TaskFilter filter) {
+        return taskStore.loadTasks(filter);
+    }
+
+    public int countTasks(TaskFilter filter) {
+        return taskStore.countTasks(filter);
+    }
+
+    /**
+     * Load tasks in the background and deliver them on the main thread in batches,
+     * so the first screen can be shown before the rest of the list is decoded
+     */
+    public void loadTasksAsync(TaskBatchCallback callback) {
+        loadExecutor.execute(() -> {
+            BatchCollector collector = new BatchCollector(callback);
+            taskStore.streamTasks(collector);
+            collector.finish();
+        });
+    }
+
+    public void insertTask(Task task) {
+        taskStore.insertTask(task);
+    }
+
+    public void updateTask(Task task) {
+        taskStore.updateTask(task);
+    }
+
+    public void deleteTask(TaskId taskId) {
+        taskStore.deleteTask(taskId);
+    }
+
+    /**
+     * Write queued changes now, waiting a bounded time, if the store queues writes
+     */
+    public void flushPendingWrites() {
+        if (taskStore instanceof WriteBehindTaskStore) {
+            WriteBehindTaskStore writeBehindStore = (WriteBehindTaskStore) taskStore;
+            writeBehindStore.flush(PAUSE_FLUSH_TIMEOUT_MS);
+            Log.d(TAG, "Write-behind metrics: " + writeBehindStore.getMetrics());
         }
-        
-        return tasks;
     }
-    
+
     public void clearTasks() {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.remove(KEY_TASKS);
-        editor.apply();
-        Log.d(TAG, "Cleared all tasks from local storage");
+        taskStore.clear();
+    }
+
+    /**
+     * Groups streamed tasks into batches and posts each one to the main thread
+     */
+    private class BatchCollector implements TaskStore.TaskStreamCallback {
+        private final TaskBatchCallback callback;
+        private List<Task> batch = new ArrayList<>(FIRST_BATCH_SIZE);
+        private int batchLimit = FIRST_BATCH_SIZE;
+        private int total;
+
+        BatchCollector(TaskBatchCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onTask(Task task) {
+            batch.add(task);
+            total++;
+            if (batch.size() >= batchLimit) {
+                List<Task> ready = batch;
+                mainHandler.post(() -> callback.onBatch(ready));
+                batch = new ArrayList<>(BATCH_SIZE);
+                batchLimit = BATCH_SIZE;
+            }
+        }
+
+        void finish() {
+            List<Task> rest = batch;
+            int count = total;
+            mainHandler.post(() -> {
+                if (!rest.isEmpty()) {
+                    callback.onBatch(rest);
+                }
+                callback.onComplete(count);
+            });
+        }
+    }
+
+    /**
+     * Callback interface for batched task loading, invoked on the main thread
+     */
+    public interface TaskBatchCallback {
+        void onBatch(List<Task> tasks);
+        void onComplete(int totalCount);
     }
-} 
\ No newline at end of file
+}
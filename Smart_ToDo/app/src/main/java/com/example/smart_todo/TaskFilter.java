@@ -0,0 +1,120 @@
+package com.example.smart_todo;
+
+import java.util.function.Predicate;
+
+/**
+ * Selects a subset of tasks.
+ * Each filter carries both a SQL selection, so an indexed store can read only the
+ * matching rows, and an equivalent in-memory check for stores that have to scan.
+ * Filters on flags alone also carry the flag masks for TaskFlagIndex.
+ */
+public final class TaskFilter {
+    private static final TaskFilter ALL = new TaskFilter(null, null, task -> true, 0, 0);
+    private static final TaskFilter PENDING = new TaskFilter(
+            SqliteTaskStore.COLUMN_COMPLETED + " = 0", null,
+            task -> !task.isCompleted(),
+            0, TaskFlagIndex.FLAG_COMPLETED);
+    private static final TaskFilter COMPLETED = new TaskFilter(
+            SqliteTaskStore.COLUMN_COMPLETED + " = 1", null,
+            Task::isCompleted,
+            TaskFlagIndex.FLAG_COMPLETED, 0);
+    private static final TaskFilter TODAY_PENDING = new TaskFilter(
+            SqliteTaskStore.COLUMN_IS_TODAY + " = 1 AND " + SqliteTaskStore.COLUMN_COMPLETED + " = 0", null,
+            task -> !task.isCompleted() && task.getTime() != null && task.isToday(),
+            TaskFlagIndex.FLAG_TODAY, TaskFlagIndex.FLAG_COMPLETED);
+    private static final TaskFilter IMPORTANT_PENDING = new TaskFilter(
+            SqliteTaskStore.COLUMN_IMPORTANT + " = 1 AND " + SqliteTaskStore.COLUMN_COMPLETED + " = 0", null,
+            task -> !task.isCompleted() && task.isImportant(),
+            TaskFlagIndex.FLAG_IMPORTANT, TaskFlagIndex.FLAG_COMPLETED);
+
+    // Marks a filter that TaskFlagIndex cannot answer
+    private static final int NOT_INDEXED = -1;
+
+    private final String selection;
+    private final String[] selectionArgs;
+    private final Predicate<Task> predicate;
+    private final int requiredFlags;
+    private final int excludedFlags;
+
+    private TaskFilter(String selection, String[] selectionArgs, Predicate<Task> predicate,
+                       int requiredFlags, int excludedFlags) {
+        this.selection = selection;
+        this.selectionArgs = selectionArgs;
+        this.predicate = predicate;
+        this.requiredFlags = requiredFlags;
+        this.excludedFlags = excludedFlags;
+    }
+
+    public static TaskFilter all() {
+        return ALL;
+    }
+
+    public static TaskFilter pending() {
+        return PENDING;
+    }
+
+    public static TaskFilter completed() {
+        return COMPLETED;
+    }
+
+    /**
+     * Pending tasks scheduled for some time today, as shown on the Today tab
+     */
+    public static TaskFilter todayPending() {
+        return TODAY_PENDING;
+    }
+
+    public static TaskFilter importantPending() {
+        return IMPORTANT_PENDING;
+    }
+
+    public static TaskFilter categoryPending(String category) {
+        return new TaskFilter(
+                SqliteTaskStore.COLUMN_CATEGORY + " = ? AND " + SqliteTaskStore.COLUMN_COMPLETED + " = 0",
+                new String[]{category},
+                task -> !task.isCompleted() && category.equals(task.getCategory()),
+                NOT_INDEXED, NOT_INDEXED);
+    }
+
+    /**
+     * Pending tasks whose time text contains the given lower-case word
+     */
+    public static TaskFilter timeContainsPending(String word) {
+        return new TaskFilter(
+                SqliteTaskStore.COLUMN_TIME + " LIKE ? AND " + SqliteTaskStore.COLUMN_COMPLETED + " = 0",
+                new String[]{"%" + word + "%"},
+                task -> !task.isCompleted() && task.getTime() != null
+                        && task.getTime().toLowerCase().contains(word),
+                NOT_INDEXED, NOT_INDEXED);
+    }
+
+    /**
+     * SQL WHERE clause without the keyword, or null to select everything
+     */
+    public String getSelection() {
+        return selection;
+    }
+
+    public String[] getSelectionArgs() {
+        return selectionArgs;
+    }
+
+    public boolean matches(Task task) {
+        return predicate.test(task);
+    }
+
+    /**
+     * Whether the filter depends on flags only, so TaskFlagIndex can evaluate it
+     */
+    boolean isFlagFilter() {
+        return requiredFlags != NOT_INDEXED;
+    }
+
+    int getRequiredFlags() {
+        return requiredFlags;
+    }
+
+    int getExcludedFlags() {
+        return excludedFlags;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.smart_todo;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Bitmap index over the task flags the views filter and count by.
+ * Every indexed task gets a dense ordinal, and each flag has a BitSet of the ordinals
+ * that carry it, so "important AND pending AND today" is a couple of word-wise ANDs
+ * and a count is a popcount, with no per-task calls or string work.
+ * Ordinals of removed tasks are reused, which keeps the bitmaps as short as the list.
+ */
+class TaskFlagIndex {
+    static final int FLAG_COMPLETED = 1;
+    static final int FLAG_IMPORTANT = 1 << 1;
+    static final int FLAG_TODAY = 1 << 2;
+    private static final int FLAG_COUNT = 3;
+
+    private final HashMap<TaskId, Integer> ordinals = new HashMap<>();
+    private final List<Task> tasksByOrdinal = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final BitSet[] flagBits = new BitSet[FLAG_COUNT];
+
+    TaskFlagIndex() {
+        for (int i = 0; i < FLAG_COUNT; i++) {
+            flagBits[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Add the task, or re-read its flags if it is already indexed
+     */
+    void put(Task task) {
+        Integer ordinal = ordinals.get(task.getTaskId());
+        if (ordinal == null) {
+            ordinal = live.nextClearBit(0);
+            ordinals.put(task.getTaskId(), ordinal);
+            live.set(ordinal);
+        }
+        if (ordinal < tasksByOrdinal.size()) {
+            tasksByOrdinal.set(ordinal, task);
+        } else {
+            tasksByOrdinal.add(task);
+        }
+
+        int flags = flagsOf(task);
+        for (int i = 0; i < FLAG_COUNT; i++) {
+            flagBits[i].set(ordinal, (flags & (1 << i)) != 0);
+        }
+    }
+
+    void remove(TaskId taskId) {
+        Integer ordinal = ordinals.remove(taskId);
+        if (ordinal == null) {
+            return;
+        }
+        live.clear(ordinal);
+        tasksByOrdinal.set(ordinal, null);
+        for (BitSet bits : flagBits) {
+            bits.clear(ordinal);
+        }
+    }
+
+    void clear() {
+        ordinals.clear();
+        tasksByOrdinal.clear();
+        live.clear();
+        for (BitSet bits : flagBits) {
+            bits.clear();
+        }
+    }
+
+    /**
+     * Ordinals of the tasks that have every required flag and none of the excluded ones
+     */
+    BitSet select(int requiredFlags, int excludedFlags) {
+        BitSet result = (BitSet) live.clone();
+        for (int i = 0; i < FLAG_COUNT; i++) {
+            if ((requiredFlags & (1 << i)) != 0) {
+                result.and(flagBits[i]);
+            } else if ((excludedFlags & (1 << i)) != 0) {
+                result.andNot(flagBits[i]);
+            }
+        }
+        return result;
+    }
+
+    int count(int requiredFlags, int excludedFlags) {
+        return select(requiredFlags, excludedFlags).cardinality();
+    }
+
+    Task taskAt(int ordinal) {
+        return tasksByOrdinal.get(ordinal);
+    }
+
+    private static int flagsOf(Task task) {
+        int flags = 0;
+        if (task.isCompleted()) flags |= FLAG_COMPLETED;
+        if (task.isImportant()) flags |= FLAG_IMPORTANT;
+        if (task.getTime() != null && task.isToday()) flags |= FLAG_TODAY;
+        return flags;
+    }
+}
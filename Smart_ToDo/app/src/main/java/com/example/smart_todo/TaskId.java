@@ -0,0 +1,140 @@
+package com.example.smart_todo;
+
+import java.util.UUID;
+
+/**
+ * Task identifier held as two longs rather than a 36-character string.
+ * equals and hashCode compare the longs without allocating. The string form is the
+ * same canonical lower-case UUID text as before, so stored and remote IDs are
+ * unchanged; an ID that is not in that form is kept as its raw string.
+ */
+public final class TaskId {
+    private static final int UUID_LENGTH = 36;
+
+    private final long mostSigBits;
+    private final long leastSigBits;
+    // Only set for IDs that are not canonical UUIDs
+    private final String raw;
+
+    TaskId(long mostSigBits, long leastSigBits) {
+        this.mostSigBits = mostSigBits;
+        this.leastSigBits = leastSigBits;
+        this.raw = null;
+    }
+
+    private TaskId(String raw) {
+        this.mostSigBits = 0;
+        this.leastSigBits = 0;
+        this.raw = raw;
+    }
+
+    public static TaskId random() {
+        UUID uuid = UUID.randomUUID();
+        return new TaskId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Parse an ID read from storage or the server
+     * @throws IllegalArgumentException if the ID is null
+     */
+    public static TaskId fromString(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Task ID is null");
+        }
+        if (!isUuid(id)) {
+            return new TaskId(id);
+        }
+        long most = parseHex(id, 0, 8) << 32 | parseHex(id, 9, 4) << 16 | parseHex(id, 14, 4);
+        long least = parseHex(id, 19, 4) << 48 | parseHex(id, 24, 12);
+        return new TaskId(most, least);
+    }
+
+    /**
+     * Whether the ID is a canonical UUID, in which case the two longs hold it
+     */
+    public boolean isUuid() {
+        return raw == null;
+    }
+
+    public long getMostSignificantBits() {
+        return mostSigBits;
+    }
+
+    public long getLeastSignificantBits() {
+        return leastSigBits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TaskId)) return false;
+        TaskId other = (TaskId) o;
+        if (raw != null) {
+            return raw.equals(other.raw);
+        }
+        return other.raw == null && mostSigBits == other.mostSigBits && leastSigBits == other.leastSigBits;
+    }
+
+    @Override
+    public int hashCode() {
+        if (raw != null) {
+            return raw.hashCode();
+        }
+        long bits = mostSigBits ^ leastSigBits;
+        return (int) (bits >> 32) ^ (int) bits;
+    }
+
+    @Override
+    public String toString() {
+        if (raw != null) {
+            return raw;
+        }
+        char[] chars = new char[UUID_LENGTH];
+        formatHex(chars, 0, mostSigBits >>> 32, 8);
+        chars[8] = '-';
+        formatHex(chars, 9, mostSigBits >>> 16, 4);
+        chars[13] = '-';
+        formatHex(chars, 14, mostSigBits, 4);
+        chars[18] = '-';
+        formatHex(chars, 19, leastSigBits >>> 48, 4);
+        chars[23] = '-';
+        formatHex(chars, 24, leastSigBits, 12);
+        return new String(chars);
+    }
+
+    /**
+     * Whether the ID has the canonical 8-4-4-4-12 lower-case UUID form
+     */
+    static boolean isUuid(String id) {
+        if (id == null || id.length() != UUID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = id.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return false;
+            } else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                // Upper-case hex would not survive the round trip unchanged
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String s, int start, int length) {
+        long value = 0;
+        for (int i = start; i < start + length; i++) {
+            char c = s.charAt(i);
+            value = (value << 4) | (c <= '9' ? c - '0' : c - 'a' + 10);
+        }
+        return value;
+    }
+
+    private static void formatHex(char[] chars, int offset, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            int digit = (int) (value & 0xF);
+            chars[offset + i] = (char) (digit < 10 ? '0' + digit : 'a' + digit - 10);
+            value >>>= 4;
+        }
+    }
+}
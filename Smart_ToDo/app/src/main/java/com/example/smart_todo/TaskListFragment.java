@@ -0,0 +1,144 @@
+package com.example.smart_todo;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * A tab showing the tasks of the shared TaskRepository that match a filter.
+ * Follows the repository's changes and forwards clicks to MainActivity.
+ */
+public abstract class TaskListFragment extends Fragment implements TaskAdapter.OnTaskClickListener,
+        TaskRepository.OnTasksChangedListener {
+
+    private final TaskFilter filter;
+    private final String emptyText;
+
+    private RecyclerView recyclerView;
+    private TextView emptyView;
+    private List<Task> tasks;
+    private TaskAdapter taskAdapter;
+    private TaskRepository taskRepository;
+
+    protected TaskListFragment(TaskFilter filter, String emptyText) {
+        this.filter = filter;
+        this.emptyText = emptyText;
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container,
+                             Bundle savedInstanceState) {
+        // Inflate a simple layout with a RecyclerView
+        View view = inflater.inflate(R.layout.fragment_task_list, container, false);
+        recyclerView = view.findViewById(R.id.tasksRecyclerView);
+        emptyView = view.findViewById(R.id.emptyView);
+        return view;
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        
+        // Filter the shared in-memory list and follow its changes
+        taskRepository = TaskRepository.getInstance(requireContext());
+        tasks = loadTasks();
+        taskRepository.addListener(this);
+        
+        // Setup RecyclerView
+        taskAdapter = new TaskAdapter(tasks, this);
+        recyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
+        recyclerView.setAdapter(taskAdapter);
+        
+        // Update empty view visibility
+        updateEmptyViewVisibility();
+    }
+    
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        taskRepository.removeListener(this);
+        taskAdapter = null;
+    }
+    
+    @Override
+    public void onTasksChanged() {
+        refreshTasks();
+    }
+    
+    @Override
+    public void onResume() {
+        super.onResume();
+        refreshTasks();
+    }
+    
+    public void refreshTasks() {
+        // Tasks can arrive before the view is created; onViewCreated picks them up then
+        if (taskAdapter == null) {
+            return;
+        }
+        
+        tasks = loadTasks();
+        taskAdapter.updateTasks(tasks);
+        updateEmptyViewVisibility();
+    }
+    
+    private List<Task> loadTasks() {
+        // A new list, never the repository's own
+        return taskRepository.getTasks(filter);
+    }
+    
+    private void updateEmptyViewVisibility() {
+        if (tasks.isEmpty()) {
+            recyclerView.setVisibility(View.GONE);
+            emptyView.setVisibility(View.VISIBLE);
+            emptyView.setText(emptyText);
+        } else {
+            recyclerView.setVisibility(View.VISIBLE);
+            emptyView.setVisibility(View.GONE);
+        }
+    }
+
+    @Override
+    public void onTaskClick(TaskId taskId) {
+        // Handle task click
+    }
+
+    // Clicks carry the task ID, so MainActivity can act on them without remapping positions
+    @Override
+    public void onCheckBoxClick(TaskId taskId, boolean isChecked) {
+        if (getActivity() instanceof MainActivity) {
+            ((MainActivity) getActivity()).onCheckBoxClick(taskId, isChecked);
+        }
+    }
+
+    @Override
+    public void onEditClick(TaskId taskId) {
+        if (getActivity() instanceof MainActivity) {
+            ((MainActivity) getActivity()).onEditClick(taskId);
+        }
+    }
+
+    @Override
+    public void onDeleteClick(TaskId taskId) {
+        if (getActivity() instanceof MainActivity) {
+            ((MainActivity) getActivity()).onDeleteClick(taskId);
+        }
+    }
+
+    @Override
+    public void onImportantClick(TaskId taskId) {
+        if (getActivity() instanceof MainActivity) {
+            ((MainActivity) getActivity()).onImportantClick(taskId);
+        }
+    }
+} 
\ No newline at end of file
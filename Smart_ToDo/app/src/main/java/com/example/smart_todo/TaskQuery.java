@@ -0,0 +1,315 @@
+package com.example.smart_todo;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A typed query over tasks that MongoDB can answer on the server.
+ * It compiles to the filter, sort, limit and projection of a Data API find, so
+ * "important work tasks, top 10" ships ten documents instead of the whole collection.
+ * The same query also runs against tasks in memory through matches and apply.
+ * Built with TaskQuery.builder(); conditions left unset match everything.
+ */
+public final class TaskQuery {
+
+    /**
+     * Buckets of the free-text time field, matched by the words it contains
+     */
+    public enum TimeBucket {
+        // The same words as Task.isToday
+        TODAY("today", "morning", "afternoon", "evening", "tonight"),
+        TOMORROW("tomorrow"),
+        ANYTIME("anytime");
+
+        private final String[] words;
+
+        TimeBucket(String... words) {
+            this.words = words;
+        }
+
+        boolean matches(String time) {
+            if (time == null) {
+                return false;
+            }
+            String lowerTime = time.toLowerCase(Locale.ROOT);
+            for (String word : words) {
+                if (lowerTime.contains(word)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String toRegex() {
+            return String.join("|", words);
+        }
+    }
+
+    public enum SortField {
+        CREATED_AT("createdAt"),
+        UPDATED_AT("updatedAt"),
+        DUE_DATE("dueDate"),
+        PRIORITY("priority"),
+        NAME("name");
+
+        private final String documentField;
+
+        SortField(String documentField) {
+            this.documentField = documentField;
+        }
+    }
+
+    // The largest limit sent in one find, the same as a sync page
+    static final int MAX_LIMIT = 500;
+
+    // Document field of each Task.FIELD_* bit, lowest bit first
+    private static final String[] DOCUMENT_FIELDS = {
+            "name", "description", "category", "time", "dueDate", "completed", "important", "priority"
+    };
+    // Always projected: needed to build a Task and to skip tombstones
+    private static final String[] KEY_FIELDS = {"id", "createdAt", "updatedAt", "deleted"};
+
+    private final Boolean completed;
+    private final Boolean important;
+    private final String category;
+    private final TimeBucket timeBucket;
+    private final SortField sortField;
+    private final boolean descending;
+    private final int limit;
+    private final int fields;
+
+    private TaskQuery(Builder builder) {
+        this.completed = builder.completed;
+        this.important = builder.important;
+        this.category = builder.category;
+        this.timeBucket = builder.timeBucket;
+        this.sortField = builder.sortField;
+        this.descending = builder.descending;
+        this.limit = builder.limit;
+        this.fields = builder.fields;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The Data API filter; never matches the tombstones of deleted tasks
+     */
+    JsonObject toFilter() {
+        JsonObject filter = new JsonObject();
+        JsonObject notDeleted = new JsonObject();
+        notDeleted.addProperty("$ne", true);
+        filter.add("deleted", notDeleted);
+        if (completed != null) {
+            filter.addProperty("completed", completed);
+        }
+        if (important != null) {
+            filter.addProperty("important", important);
+        }
+        if (category != null) {
+            filter.addProperty("category", category);
+        }
+        if (timeBucket != null) {
+            JsonObject regex = new JsonObject();
+            regex.addProperty("$regex", timeBucket.toRegex());
+            regex.addProperty("$options", "i");
+            filter.add("time", regex);
+        }
+        return filter;
+    }
+
+    /**
+     * The Data API sort, or null for no particular order. Ties are broken by id,
+     * so a limit always cuts at the same task.
+     */
+    JsonObject toSort() {
+        if (sortField == null) {
+            return null;
+        }
+        JsonObject sort = new JsonObject();
+        sort.addProperty(sortField.documentField, descending ? -1 : 1);
+        sort.addProperty("id", 1);
+        return sort;
+    }
+
+    /**
+     * The Data API projection, or null to return whole documents
+     */
+    JsonObject toProjection() {
+        if (fields == Task.ALL_FIELDS) {
+            return null;
+        }
+        JsonObject projection = new JsonObject();
+        for (String field : KEY_FIELDS) {
+            projection.addProperty(field, 1);
+        }
+        for (int i = 0; i < DOCUMENT_FIELDS.length; i++) {
+            if ((fields & (1 << i)) != 0) {
+                projection.addProperty(DOCUMENT_FIELDS[i], 1);
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * Most tasks to return, or 0 for all of them
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    boolean isSorted() {
+        return sortField != null;
+    }
+
+    /**
+     * The Task.FIELD_* bits the results are filled in with
+     */
+    int getFields() {
+        return fields;
+    }
+
+    /**
+     * Whether a task in memory meets the query's conditions
+     */
+    public boolean matches(Task task) {
+        return (completed == null || task.isCompleted() == completed)
+                && (important == null || task.isImportant() == important)
+                && (category == null || category.equals(task.getCategory()))
+                && (timeBucket == null || timeBucket.matches(task.getTime()));
+    }
+
+    /**
+     * Run the query against tasks in memory: filter, sort and limit
+     */
+    public List<Task> apply(Collection<Task> tasks) {
+        List<Task> result = new ArrayList<>();
+        for (Task task : tasks) {
+            if (matches(task)) {
+                result.add(task);
+            }
+        }
+        sort(result);
+        if (limit > 0 && result.size() > limit) {
+            return new ArrayList<>(result.subList(0, limit));
+        }
+        return result;
+    }
+
+    /**
+     * Put tasks in the query's order, as the server would
+     */
+    void sort(List<Task> tasks) {
+        if (sortField == null) {
+            return;
+        }
+        Comparator<Task> order = comparator(sortField);
+        if (descending) {
+            order = order.reversed();
+        }
+        Collections.sort(tasks, order.thenComparing(Task::getId));
+    }
+
+    private static Comparator<Task> comparator(SortField field) {
+        switch (field) {
+            case CREATED_AT:
+                return Comparator.comparing(Task::getCreatedAt, Comparator.nullsFirst(Comparator.<Date>naturalOrder()));
+            case UPDATED_AT:
+                return Comparator.comparingLong(Task::getUpdatedAt);
+            case DUE_DATE:
+                // MongoDB sorts missing values first in ascending order
+                return Comparator.comparing(Task::getDueDate, Comparator.nullsFirst(Comparator.<Date>naturalOrder()));
+            case PRIORITY:
+                return Comparator.comparingInt(Task::getPriority);
+            default:
+                return Comparator.comparing(Task::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        JsonObject query = new JsonObject();
+        query.add("filter", toFilter());
+        if (isSorted()) {
+            query.add("sort", toSort());
+        }
+        if (limit > 0) {
+            query.addProperty("limit", limit);
+        }
+        if (fields != Task.ALL_FIELDS) {
+            query.add("projection", toProjection());
+        }
+        return query.toString();
+    }
+
+    public static class Builder {
+        private Boolean completed;
+        private Boolean important;
+        private String category;
+        private TimeBucket timeBucket;
+        private SortField sortField;
+        private boolean descending;
+        private int limit;
+        private int fields = Task.ALL_FIELDS;
+
+        private Builder() {
+        }
+
+        public Builder completed(boolean completed) {
+            this.completed = completed;
+            return this;
+        }
+
+        public Builder important(boolean important) {
+            this.important = important;
+            return this;
+        }
+
+        public Builder category(String category) {
+            this.category = category;
+            return this;
+        }
+
+        public Builder time(TimeBucket timeBucket) {
+            this.timeBucket = timeBucket;
+            return this;
+        }
+
+        public Builder sortBy(SortField field, boolean descending) {
+            this.sortField = field;
+            this.descending = descending;
+            return this;
+        }
+
+        /**
+         * Return at most this many tasks, up to MAX_LIMIT
+         */
+        public Builder limit(int limit) {
+            if (limit < 1 || limit > MAX_LIMIT) {
+                throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT + ": " + limit);
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * Fetch only these fields, as Task.FIELD_* bits; the rest keep their defaults
+         */
+        Builder fields(int fields) {
+            this.fields = fields & Task.ALL_FIELDS;
+            return this;
+        }
+
+        public TaskQuery build() {
+            return new TaskQuery(this);
+        }
+    }
+}
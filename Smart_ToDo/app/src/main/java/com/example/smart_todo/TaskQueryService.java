@@ -17,11 +17,12 @@ public class TaskQueryService {
     
     /**
      * Process natural language query and return appropriate response
+     * Answered from the in-memory repository; counts come from its flag bitmaps
      * @param query User's natural language question
-     * @param tasks List of all tasks
+     * @param repository Tasks to answer from
      * @return Human-readable response to the query
      */
-    public static String processQuery(String query, List<Task> tasks) {
+    public static String processQuery(String query, TaskRepository repository) {
         if (query == null || query.trim().isEmpty()) {
             return "Please ask me a question about your tasks.";
         }
@@ -36,29 +37,29 @@ public class TaskQueryService {
         
         // Identify query type and respond accordingly
         if (isTaskCountQuery(lowerQuery)) {
-            return handleTaskCountQuery(lowerQuery, tasks);
+            return handleTaskCountQuery(lowerQuery, repository);
         } else if (isTodayTasksQuery(lowerQuery)) {
-            return handleTodayTasksQuery(tasks);
+            return handleTodayTasksQuery(repository);
         } else if (isTomorrowTasksQuery(lowerQuery)) {
-            return handleTomorrowTasksQuery(tasks);
+            return handleTomorrowTasksQuery(repository);
         } else if (isImportantTasksQuery(lowerQuery)) {
-            return handleImportantTasksQuery(tasks);
+            return handleImportantTasksQuery(repository);
         } else if (isCompletedTasksQuery(lowerQuery)) {
-            return handleCompletedTasksQuery(tasks);
+            return handleCompletedTasksQuery(repository);
         } else if (isWorkTasksQuery(lowerQuery)) {
-            return handleCategoryTasksQuery(tasks, "Work");
+            return handleCategoryTasksQuery(repository, "Work");
         } else if (isStudyTasksQuery(lowerQuery)) {
-            return handleCategoryTasksQuery(tasks, "Study");
+            return handleCategoryTasksQuery(repository, "Study");
         } else if (isShoppingTasksQuery(lowerQuery)) {
-            return handleCategoryTasksQuery(tasks, "Shopping");
+            return handleCategoryTasksQuery(repository, "Shopping");
         } else if (isSuggestionQuery(lowerQuery)) {
-            return handleSuggestionQuery(tasks);
+            return handleSuggestionQuery(repository);
         } else if (isNextTaskQuery(lowerQuery)) {
-            return handleNextTaskQuery(tasks);
+            return handleNextTaskQuery(repository);
         } else if (isStatusQuery(lowerQuery)) {
-            return handleStatusQuery(tasks);
+            return handleStatusQuery(repository);
         } else {
-            return handleGenericQuery(lowerQuery, tasks);
+            return handleGenericQuery(lowerQuery, repository);
         }
     }
     
@@ -109,32 +110,20 @@ public class TaskQueryService {
     }
     
     // Query handling methods
-    private static String handleTaskCountQuery(String query, List<Task> tasks) {
+    private static String handleTaskCountQuery(String query, TaskRepository repository) {
         if (query.contains("completed") || query.contains("finished")) {
-            int completedCount = 0;
-            for (Task task : tasks) {
-                if (task.isCompleted()) completedCount++;
-            }
+            int completedCount = repository.countTasks(TaskFilter.completed());
             return String.format("You have completed %d task%s.", completedCount, completedCount != 1 ? "s" : "");
         } else {
-            int totalCount = tasks.size();
-            int pendingCount = 0;
-            for (Task task : tasks) {
-                if (!task.isCompleted()) pendingCount++;
-            }
+            int totalCount = repository.countTasks(TaskFilter.all());
+            int pendingCount = repository.countTasks(TaskFilter.pending());
             return String.format("You have %d total task%s, with %d pending.", 
                     totalCount, totalCount != 1 ? "s" : "", pendingCount);
         }
     }
     
-    private static String handleTodayTasksQuery(List<Task> tasks) {
-        List<Task> todayTasks = new ArrayList<>();
-        
-        for (Task task : tasks) {
-            if (!task.isCompleted() && task.isToday()) {
-                todayTasks.add(task);
-            }
-        }
+    private static String handleTodayTasksQuery(TaskRepository repository) {
+        List<Task> todayTasks = repository.getTasks(TaskFilter.todayPending());
         
         if (todayTasks.isEmpty()) {
             return "You have no specific tasks scheduled for today. Consider checking your priority tasks!";
@@ -153,15 +142,8 @@ public class TaskQueryService {
         return response.toString().trim();
     }
     
-    private static String handleTomorrowTasksQuery(List<Task> tasks) {
-        List<Task> tomorrowTasks = new ArrayList<>();
-        
-        for (Task task : tasks) {
-            if (!task.isCompleted() && task.getTime() != null && 
-                task.getTime().toLowerCase().contains("tomorrow")) {
-                tomorrowTasks.add(task);
-            }
-        }
+    private static String handleTomorrowTasksQuery(TaskRepository repository) {
+        List<Task> tomorrowTasks = repository.getTasks(TaskFilter.timeContainsPending("tomorrow"));
         
         if (tomorrowTasks.isEmpty()) {
             return "You have no specific tasks scheduled for tomorrow.";
@@ -180,14 +162,8 @@ public class TaskQueryService {
         return response.toString().trim();
     }
     
-    private static String handleImportantTasksQuery(List<Task> tasks) {
-        List<Task> importantTasks = new ArrayList<>();
-        
-        for (Task task : tasks) {
-            if (!task.isCompleted() && task.isImportant()) {
-                importantTasks.add(task);
-            }
-        }
+    private static String handleImportantTasksQuery(TaskRepository repository) {
+        List<Task> importantTasks = repository.getTasks(TaskFilter.importantPending());
         
         if (importantTasks.isEmpty()) {
             return "You have no important tasks pending. Great job!";
@@ -206,14 +182,8 @@ public class TaskQueryService {
         return response.toString().trim();
     }
     
-    private static String handleCompletedTasksQuery(List<Task> tasks) {
-        List<Task> completedTasks = new ArrayList<>();
-        
-        for (Task task : tasks) {
-            if (task.isCompleted()) {
-                completedTasks.add(task);
-            }
-        }
+    private static String handleCompletedTasksQuery(TaskRepository repository) {
+        List<Task> completedTasks = repository.getTasks(TaskFilter.completed());
         
         if (completedTasks.isEmpty()) {
             return "You haven't completed any tasks yet. Time to get started!";
@@ -235,14 +205,8 @@ public class TaskQueryService {
         return response.toString().trim();
     }
     
-    private static String handleCategoryTasksQuery(List<Task> tasks, String category) {
-        List<Task> categoryTasks = new ArrayList<>();
-        
-        for (Task task : tasks) {
-            if (!task.isCompleted() && category.equals(task.getCategory())) {
-                categoryTasks.add(task);
-            }
-        }
+    private static String handleCategoryTasksQuery(TaskRepository repository, String category) {
+        List<Task> categoryTasks = repository.getTasks(TaskFilter.categoryPending(category));
         
         if (categoryTasks.isEmpty()) {
             return String.format("You have no pending %s tasks.", category.toLowerCase());
@@ -261,9 +225,9 @@ public class TaskQueryService {
         return response.toString().trim();
     }
     
-    private static String handleSuggestionQuery(List<Task> tasks) {
+    private static String handleSuggestionQuery(TaskRepository repository) {
         List<TaskSuggestionService.TaskSuggestion> suggestions = 
-                TaskSuggestionService.getTaskSuggestions(tasks, 3);
+                TaskSuggestionService.getTaskSuggestions(repository.getTasks(TaskFilter.pending()), 3);
         
         if (suggestions.isEmpty()) {
             return "You have no pending tasks. Great job staying on top of everything!";
@@ -279,8 +243,8 @@ public class TaskQueryService {
         return response.toString().trim();
     }
     
-    private static String handleNextTaskQuery(List<Task> tasks) {
-        Task nextTask = TaskSuggestionService.getNextTaskSuggestion(tasks);
+    private static String handleNextTaskQuery(TaskRepository repository) {
+        Task nextTask = TaskSuggestionService.getNextTaskSuggestion(repository.getTasks(TaskFilter.pending()));
         
         if (nextTask == null) {
             return "You have no pending tasks. Enjoy your free time!";
@@ -294,24 +258,11 @@ public class TaskQueryService {
                 nextTask.isImportant() ? " and it's marked as important." : ".");
     }
     
-    private static String handleStatusQuery(List<Task> tasks) {
-        int totalTasks = tasks.size();
-        int completedTasks = 0;
-        int importantTasks = 0;
-        int todayTasks = 0;
-        
-        for (Task task : tasks) {
-            if (task.isCompleted()) {
-                completedTasks++;
-            } else {
-                if (task.isImportant()) {
-                    importantTasks++;
-                }
-                if (task.isToday()) {
-                    todayTasks++;
-                }
-            }
-        }
+    private static String handleStatusQuery(TaskRepository repository) {
+        int totalTasks = repository.countTasks(TaskFilter.all());
+        int completedTasks = repository.countTasks(TaskFilter.completed());
+        int importantTasks = repository.countTasks(TaskFilter.importantPending());
+        int todayTasks = repository.countTasks(TaskFilter.todayPending());
         
         int pendingTasks = totalTasks - completedTasks;
         double completionRate = totalTasks > 0 ? (double) completedTasks / totalTasks * 100 : 0;
@@ -329,19 +280,19 @@ public class TaskQueryService {
                 completionRate >= 40 ? "👍 Keep it up!" : "💪 You can do it!");
     }
     
-    private static String handleGenericQuery(String query, List<Task> tasks) {
+    private static String handleGenericQuery(String query, TaskRepository repository) {
         // Try to find tasks matching keywords in the query
         List<Task> matchingTasks = new ArrayList<>();
         String[] keywords = query.split("\\s+");
         
-        for (Task task : tasks) {
-            if (!task.isCompleted()) {
-                String taskText = (task.getName() + " " + task.getDescription() + " " + task.getCategory()).toLowerCase();
-                for (String keyword : keywords) {
-                    if (keyword.length() > 2 && taskText.contains(keyword)) {
-                        matchingTasks.add(task);
-                        break;
-                    }
+        for (Task task : repository.getTasks(TaskFilter.pending())) {
+            // A description not loaded yet is not searched
+            String description = task.isDescriptionLoaded() ? task.getDescription() : "";
+            String taskText = (task.getName() + " " + description + " " + task.getCategory()).toLowerCase();
+            for (String keyword : keywords) {
+                if (keyword.length() > 2 && taskText.contains(keyword)) {
+                    matchingTasks.add(task);
+                    break;
                 }
             }
         }
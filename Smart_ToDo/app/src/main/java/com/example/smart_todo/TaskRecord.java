@@ -0,0 +1,52 @@
+package com.example.smart_todo;
+
+/**
+ * A single change to the task list, queued to be written to a TaskStore
+ */
+public class TaskRecord {
+    // New task, placed at the front of the list
+    public static final int OP_INSERT = 1;
+    public static final int OP_UPDATE = 2;
+    public static final int OP_DELETE = 3;
+
+    private final int op;
+    private final Task task;
+    private final TaskId taskId;
+
+    private TaskRecord(int op, Task task, TaskId taskId) {
+        this.op = op;
+        this.task = task;
+        this.taskId = taskId;
+    }
+
+    public static TaskRecord insert(Task task) {
+        return new TaskRecord(OP_INSERT, task, task.getTaskId());
+    }
+
+    public static TaskRecord update(Task task) {
+        return new TaskRecord(OP_UPDATE, task, task.getTaskId());
+    }
+
+    public static TaskRecord delete(TaskId taskId) {
+        return new TaskRecord(OP_DELETE, null, taskId);
+    }
+
+    static TaskRecord of(int op, Task task) {
+        return new TaskRecord(op, task, task.getTaskId());
+    }
+
+    public int getOp() {
+        return op;
+    }
+
+    /**
+     * The task state, or null for deletes
+     */
+    public Task getTask() {
+        return task;
+    }
+
+    public TaskId getTaskId() {
+        return taskId;
+    }
+}
@@ -0,0 +1,402 @@
+package com.example.smart_todo;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide owner of the task list.
+ * Screens read tasks and filtered views from memory and subscribe for changes;
+ * every change goes through here and is handed to TaskDatabase to persist, so
+ * refreshing a view never touches disk. Used from the main thread only.
+ */
+public class TaskRepository {
+    private static final String TAG = "TaskRepository";
+
+    // Pending tasks first; the sort is stable so list order is kept otherwise
+    private static final Comparator<Task> COMPLETED_LAST = (task1, task2) ->
+            Boolean.compare(task1.isCompleted(), task2.isCompleted());
+
+    private static TaskRepository instance;
+
+    private final TaskDatabase taskDatabase;
+    private final List<Task> tasks = new ArrayList<>();
+    // Lookup by ID; kept in step with every change to the list
+    private final HashMap<TaskId, Task> tasksById = new HashMap<>();
+    // Position of each ID in the list; only the range a change shifts is rewritten
+    private final HashMap<TaskId, Integer> positionsById = new HashMap<>();
+    // Flag bitmaps for filtered views and counts
+    private final TaskFlagIndex flagIndex = new TaskFlagIndex();
+    private final List<OnTasksChangedListener> listeners = new ArrayList<>();
+    private boolean loadStarted;
+    private boolean loaded;
+    // Run once the first load from storage has finished
+    private final List<Runnable> loadedActions = new ArrayList<>();
+
+    private TaskRepository(TaskDatabase taskDatabase) {
+        this.taskDatabase = taskDatabase;
+    }
+
+    public static synchronized TaskRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new TaskRepository(new TaskDatabase(context.getApplicationContext()));
+        }
+        return instance;
+    }
+
+    /**
+     * The canonical list, in display order, as a read-only view
+     */
+    public List<Task> getTasks() {
+        return Collections.unmodifiableList(tasks);
+    }
+
+    /**
+     * The task with the given ID, or null if it is not in the list
+     */
+    public Task getTask(TaskId taskId) {
+        return tasksById.get(taskId);
+    }
+
+    /**
+     * Position of the task in getTasks(), or -1 if it is not in the list
+     */
+    public int indexOf(TaskId taskId) {
+        Integer position = positionsById.get(taskId);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * A new list of the tasks matching the filter, in display order
+     */
+    public List<Task> getTasks(TaskFilter filter) {
+        List<Task> matching = new ArrayList<>();
+        if (filter.isFlagFilter()) {
+            BitSet selected = flagIndex.select(filter.getRequiredFlags(), filter.getExcludedFlags());
+            for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                matching.add(flagIndex.taskAt(i));
+            }
+            // Ordinals are not list positions; put the matches back in display order
+            Collections.sort(matching, (task1, task2) ->
+                    Integer.compare(indexOf(task1.getTaskId()), indexOf(task2.getTaskId())));
+            return matching;
+        }
+        for (Task task : tasks) {
+            if (filter.matches(task)) {
+                matching.add(task);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Number of tasks matching the filter; a popcount for flag filters
+     */
+    public int countTasks(TaskFilter filter) {
+        if (filter.isFlagFilter()) {
+            return flagIndex.count(filter.getRequiredFlags(), filter.getExcludedFlags());
+        }
+        int count = 0;
+        for (Task task : tasks) {
+            if (filter.matches(task)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void addListener(OnTasksChangedListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(OnTasksChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Fill the list from local storage, once per process.
+     * Batches are shown as they arrive, so the first screen appears before the rest is read.
+     */
+    public void loadFromStorage() {
+        if (loadStarted) {
+            notifyChanged();
+            return;
+        }
+        loadStarted = true;
+        taskDatabase.loadTasksAsync(new TaskDatabase.TaskBatchCallback() {
+            @Override
+            public void onBatch(List<Task> batch) {
+                int firstNew = tasks.size();
+                for (Task task : batch) {
+                    if (!tasksById.containsKey(task.getTaskId())) {
+                        tasks.add(task);
+                        tasksById.put(task.getTaskId(), task);
+                        flagIndex.put(task);
+                    }
+                }
+                reindex(firstNew, tasks.size() - 1);
+                notifyChanged();
+            }
+
+            @Override
+            public void onComplete(int totalCount) {
+                Log.d(TAG, "Loaded " + totalCount + " tasks from local storage");
+                if (!isCompletedLast()) {
+                    sortCompletedLast();
+                    notifyChanged();
+                }
+                markLoaded();
+            }
+        });
+    }
+
+    /**
+     * Run the action once the list has been filled from storage, or now if it already has
+     */
+    public void whenLoaded(Runnable action) {
+        if (loaded) {
+            action.run();
+        } else {
+            loadedActions.add(action);
+        }
+    }
+
+    private void markLoaded() {
+        loaded = true;
+        List<Runnable> actions = new ArrayList<>(loadedActions);
+        loadedActions.clear();
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    /**
+     * Replace the whole list, e.g. with the copy fetched from the server, and store it
+     */
+    public void replaceAll(List<Task> newTasks) {
+        loadStarted = true;
+        tasks.clear();
+        tasksById.clear();
+        flagIndex.clear();
+        for (Task task : newTasks) {
+            if (tasksById.put(task.getTaskId(), task) == null) {
+                tasks.add(task);
+                flagIndex.put(task);
+            }
+        }
+        sortCompletedLast();
+        taskDatabase.saveTasks(tasks);
+        markLoaded();
+        notifyChanged();
+    }
+
+    /**
+     * Apply changes fetched from the server and store them.
+     * A change only replaces the local copy if it is newer, so when a task was edited
+     * on two devices the later edit wins. A change fetched as a summary keeps the
+     * description already loaded here, so the edit dialog need not fetch it again.
+     * @param deletedTasks deletion time of each task deleted on the server, by ID
+     */
+    public void mergeRemoteChanges(List<Task> changedTasks, Map<String, Long> deletedTasks) {
+        // Positions are fixed up once at the end, not per task
+        boolean changed = false;
+        for (Task remote : changedTasks) {
+            Task local = tasksById.get(remote.getTaskId());
+            if (local == null) {
+                tasks.add(remote);
+                tasksById.put(remote.getTaskId(), remote);
+                positionsById.put(remote.getTaskId(), tasks.size() - 1);
+                taskDatabase.insertTask(remote);
+            } else if (remote.getUpdatedAt() > local.getUpdatedAt()) {
+                if (!remote.isDescriptionLoaded() && local.isDescriptionLoaded()) {
+                    remote.setLoadedDescription(local.getDescription());
+                }
+                tasks.set(indexOf(remote.getTaskId()), remote);
+                tasksById.put(remote.getTaskId(), remote);
+                taskDatabase.updateTask(remote);
+            } else {
+                continue;
+            }
+            flagIndex.put(remote);
+            changed = true;
+        }
+        HashSet<TaskId> removed = new HashSet<>();
+        for (Map.Entry<String, Long> deletion : deletedTasks.entrySet()) {
+            TaskId taskId = TaskId.fromString(deletion.getKey());
+            Task local = tasksById.get(taskId);
+            if (local != null && deletion.getValue() >= local.getUpdatedAt()) {
+                removed.add(taskId);
+                tasksById.remove(taskId);
+                positionsById.remove(taskId);
+                flagIndex.remove(taskId);
+                taskDatabase.deleteTask(taskId);
+            }
+        }
+        if (!removed.isEmpty()) {
+            tasks.removeIf(task -> removed.contains(task.getTaskId()));
+            changed = true;
+        }
+        if (changed) {
+            sortCompletedLast();
+            notifyChanged();
+        }
+    }
+
+    /**
+     * Add a new task. Adding a task whose ID is already in the list updates it instead.
+     */
+    public void addTask(Task task) {
+        Task existing = tasksById.get(task.getTaskId());
+        if (existing != null) {
+            if (existing != task) {
+                tasks.set(indexOf(task.getTaskId()), task);
+                tasksById.put(task.getTaskId(), task);
+            }
+            updateTask(task);
+            return;
+        }
+        if (task.isCompleted()) {
+            // Completed tasks go after the last pending one
+            int insertPosition = 0;
+            while (insertPosition < tasks.size() && !tasks.get(insertPosition).isCompleted()) {
+                insertPosition++;
+            }
+            tasks.add(insertPosition, task);
+        } else {
+            tasks.add(0, task);
+        }
+        tasksById.put(task.getTaskId(), task);
+        flagIndex.put(task);
+        reindex(0, tasks.size() - 1);
+        taskDatabase.insertTask(task);
+        notifyChanged();
+    }
+
+    /**
+     * Persist and publish changes already made to a task in the list
+     */
+    public void updateTask(Task task) {
+        task.markUpdated();
+        moveToGroup(task);
+        flagIndex.put(task);
+        taskDatabase.updateTask(task);
+        notifyChanged();
+    }
+
+    /**
+     * Store a description loaded for a task fetched as a summary. Not a change to the task,
+     * so it keeps its updatedAt.
+     */
+    public void applyLoadedDescription(TaskId taskId, String description) {
+        Task task = tasksById.get(taskId);
+        if (task == null || task.isDescriptionLoaded()) {
+            return;
+        }
+        task.setLoadedDescription(description);
+        taskDatabase.updateTask(task);
+        notifyChanged();
+    }
+
+    public void deleteTask(TaskId taskId) {
+        int position = indexOf(taskId);
+        if (position >= 0) {
+            tasks.remove(position);
+            tasksById.remove(taskId);
+            positionsById.remove(taskId);
+            flagIndex.remove(taskId);
+            reindex(position, tasks.size() - 1);
+        }
+        taskDatabase.deleteTask(taskId);
+        notifyChanged();
+    }
+
+    /**
+     * Write queued changes to storage, e.g. when the app is paused
+     */
+    public void flush() {
+        taskDatabase.flushPendingWrites();
+    }
+
+    /**
+     * Put a task whose completed flag may have changed where a stable sort with
+     * COMPLETED_LAST would: after the pending tasks before it if it is pending, or
+     * before the completed tasks after it if it is completed. Only the positions
+     * between its old and new place change.
+     */
+    private void moveToGroup(Task task) {
+        int from = indexOf(task.getTaskId());
+        if (from < 0) {
+            return;
+        }
+        tasks.remove(from);
+        int pendingCount = countPendingPrefix();
+        int to = task.isCompleted() ? Math.max(from, pendingCount) : Math.min(from, pendingCount);
+        tasks.add(to, task);
+        reindex(Math.min(from, to), Math.max(from, to));
+    }
+
+    /**
+     * Number of pending tasks at the front of the list, found by binary search since
+     * pending tasks always come first
+     */
+    private int countPendingPrefix() {
+        int low = 0;
+        int high = tasks.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tasks.get(middle).isCompleted()) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private boolean isCompletedLast() {
+        for (int i = 1; i < tasks.size(); i++) {
+            if (tasks.get(i - 1).isCompleted() && !tasks.get(i).isCompleted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void sortCompletedLast() {
+        Collections.sort(tasks, COMPLETED_LAST);
+        positionsById.clear();
+        reindex(0, tasks.size() - 1);
+    }
+
+    /**
+     * Record the positions of the tasks from first to last, inclusive
+     */
+    private void reindex(int first, int last) {
+        for (int i = first; i <= last; i++) {
+            positionsById.put(tasks.get(i).getTaskId(), i);
+        }
+    }
+
+    private void notifyChanged() {
+        for (OnTasksChangedListener listener : new ArrayList<>(listeners)) {
+            listener.onTasksChanged();
+        }
+    }
+
+    /**
+     * Notified on the main thread after the task list changes
+     */
+    public interface OnTasksChangedListener {
+        void onTasksChanged();
+    }
+}
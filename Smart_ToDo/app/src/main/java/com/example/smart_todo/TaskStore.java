@@ -0,0 +1,68 @@
+package com.example.smart_todo;
+
+import java.util.List;
+
+/**
+ * Persistent storage backend for tasks.
+ * Implementations persist single-record changes so that a toggle or edit
+ * does not have to rewrite the whole task list.
+ */
+public interface TaskStore {
+
+    /**
+     * Load every stored task, in list order
+     */
+    List<Task> loadTasks();
+
+    /**
+     * Load the stored tasks that match the filter, in list order
+     */
+    List<Task> loadTasks(TaskFilter filter);
+
+    /**
+     * Count the stored tasks that match the filter
+     */
+    int countTasks(TaskFilter filter);
+
+    /**
+     * Decode stored tasks one at a time and hand each to the callback, in list order
+     */
+    void streamTasks(TaskStreamCallback callback);
+
+    /**
+     * Replace the stored contents with the given list
+     */
+    void saveTasks(List<Task> tasks);
+
+    /**
+     * Persist a newly created task (it goes to the front of the list)
+     */
+    void insertTask(Task task);
+
+    /**
+     * Persist changes to an existing task
+     */
+    void updateTask(Task task);
+
+    /**
+     * Remove a task by its ID
+     */
+    void deleteTask(TaskId taskId);
+
+    /**
+     * Persist a batch of single-task changes, in order, as one write where the store allows it
+     */
+    void applyChanges(List<TaskRecord> records);
+
+    /**
+     * Remove all stored tasks
+     */
+    void clear();
+
+    /**
+     * Receives tasks as they are decoded
+     */
+    interface TaskStreamCallback {
+        void onTask(Task task);
+    }
+}
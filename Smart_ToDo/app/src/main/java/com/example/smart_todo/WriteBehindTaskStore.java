@@ -0,0 +1,341 @@
+package com.example.smart_todo;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind wrapper around another TaskStore.
+ * Changes are queued and coalesced per task for a short window, then written in one
+ * batch on a background thread, so a burst of toggles on the UI thread costs a single
+ * write. Reads wait briefly for queued changes so they never see stale data.
+ * Each change holds a copy of the task taken when it was queued, and a batch the
+ * wrapped store fails to write is queued again and retried.
+ */
+public class WriteBehindTaskStore implements TaskStore {
+    private static final String TAG = "WriteBehindTaskStore";
+
+    // How long changes are held so that a burst is written once
+    private static final long COALESCE_WINDOW_MS = 250;
+    // Upper bound a read waits for queued changes to reach the store
+    private static final long READ_FLUSH_TIMEOUT_MS = 500;
+    // Wait before writing a batch the store failed to write
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private static WriteBehindTaskStore instance;
+
+    private final TaskStore delegate;
+    private final ScheduledExecutorService writeExecutor;
+    private final Object lock = new Object();
+
+    // Latest pending change per task ID, in the order the tasks were first touched
+    private LinkedHashMap<TaskId, TaskRecord> pending = new LinkedHashMap<>();
+    // A full replacement that must be written before the pending changes
+    private List<Task> pendingReplacement;
+    private boolean flushScheduled;
+
+    // Metrics, guarded by lock
+    private long submittedChanges;
+    private long writtenChanges;
+    private int flushCount;
+    private int failedFlushCount;
+    private long totalFlushMillis;
+    private long maxFlushMillis;
+
+    public WriteBehindTaskStore(TaskStore delegate) {
+        this.delegate = delegate;
+        this.writeExecutor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    public static synchronized WriteBehindTaskStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new WriteBehindTaskStore(SqliteTaskStore.getInstance(context));
+        }
+        return instance;
+    }
+
+    @Override
+    public List<Task> loadTasks() {
+        awaitPendingWrites();
+        return delegate.loadTasks();
+    }
+
+    @Override
+    public List<Task> loadTasks(TaskFilter filter) {
+        awaitPendingWrites();
+        return delegate.loadTasks(filter);
+    }
+
+    @Override
+    public int countTasks(TaskFilter filter) {
+        awaitPendingWrites();
+        return delegate.countTasks(filter);
+    }
+
+    @Override
+    public void streamTasks(TaskStreamCallback callback) {
+        awaitPendingWrites();
+        delegate.streamTasks(callback);
+    }
+
+    @Override
+    public void saveTasks(List<Task> tasks) {
+        synchronized (lock) {
+            // A full replacement supersedes every change queued before it
+            submittedChanges += pending.size() + 1;
+            pending.clear();
+            pendingReplacement = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                pendingReplacement.add(task.copy());
+            }
+            scheduleFlush(COALESCE_WINDOW_MS);
+        }
+    }
+
+    @Override
+    public void insertTask(Task task) {
+        submit(TaskRecord.insert(task.copy()));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        submit(TaskRecord.update(task.copy()));
+    }
+
+    @Override
+    public void deleteTask(TaskId taskId) {
+        submit(TaskRecord.delete(taskId));
+    }
+
+    @Override
+    public void applyChanges(List<TaskRecord> records) {
+        for (TaskRecord record : records) {
+            submit(record.getTask() != null ? TaskRecord.of(record.getOp(), record.getTask().copy()) : record);
+        }
+    }
+
+    @Override
+    public void clear() {
+        saveTasks(new ArrayList<>());
+    }
+
+    /**
+     * Write queued changes now and wait up to the given time for them to reach the store.
+     * Called when the app is paused, so that a process kill cannot lose recent changes.
+     * @return true if everything queued was written in time
+     */
+    public boolean flush(long timeoutMs) {
+        Future<Boolean> flush = writeExecutor.submit(this::writePending);
+        try {
+            return flush.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            Log.w(TAG, "Pending task writes did not finish within " + timeoutMs + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Error flushing pending task writes", e.getCause());
+        }
+        return false;
+    }
+
+    /**
+     * Snapshot of the write metrics since the store was created
+     */
+    public Metrics getMetrics() {
+        synchronized (lock) {
+            return new Metrics(flushCount, failedFlushCount, submittedChanges, writtenChanges,
+                    totalFlushMillis, maxFlushMillis);
+        }
+    }
+
+    private void submit(TaskRecord record) {
+        synchronized (lock) {
+            submittedChanges++;
+            TaskRecord merged = coalesce(pending.get(record.getTaskId()), record);
+            if (merged == null) {
+                pending.remove(record.getTaskId());
+            } else {
+                pending.put(record.getTaskId(), merged);
+            }
+            scheduleFlush(COALESCE_WINDOW_MS);
+        }
+    }
+
+    /**
+     * Fold a new change into the one already queued for the same task
+     * @return the change to keep, or null if the two cancel out
+     */
+    private static TaskRecord coalesce(TaskRecord queued, TaskRecord next) {
+        if (queued == null) {
+            return next;
+        }
+        switch (next.getOp()) {
+            case TaskRecord.OP_DELETE:
+                // A task created and deleted in the same window never needs writing
+                return queued.getOp() == TaskRecord.OP_INSERT ? null : next;
+            case TaskRecord.OP_UPDATE:
+                if (queued.getOp() == TaskRecord.OP_DELETE) {
+                    return queued;
+                }
+                // Keep an insert an insert, with the latest state
+                return TaskRecord.of(queued.getOp(), next.getTask());
+            default:
+                return next;
+        }
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            writeExecutor.schedule(this::writePending, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void awaitPendingWrites() {
+        boolean hasPending;
+        synchronized (lock) {
+            hasPending = pendingReplacement != null || !pending.isEmpty();
+        }
+        if (hasPending) {
+            flush(READ_FLUSH_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * Drain the queue into the wrapped store; only ever runs on the write thread
+     * @return false if the store failed and the changes were queued again
+     */
+    private boolean writePending() {
+        List<Task> replacement;
+        List<TaskRecord> records;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pendingReplacement == null && pending.isEmpty()) {
+                return true;
+            }
+            replacement = pendingReplacement;
+            records = new ArrayList<>(pending.values());
+            pendingReplacement = null;
+            pending = new LinkedHashMap<>();
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        boolean written = true;
+        try {
+            if (replacement != null) {
+                delegate.saveTasks(replacement);
+                // Written, so a failure below must not queue it again
+                replacement = null;
+            }
+            if (!records.isEmpty()) {
+                delegate.applyChanges(records);
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error writing " + records.size() + " queued task changes, retrying", e);
+            written = false;
+        }
+        long elapsed = SystemClock.elapsedRealtime() - start;
+
+        synchronized (lock) {
+            flushCount++;
+            totalFlushMillis += elapsed;
+            maxFlushMillis = Math.max(maxFlushMillis, elapsed);
+            if (written) {
+                writtenChanges += records.size() + (replacement != null ? 1 : 0);
+            } else {
+                failedFlushCount++;
+                requeue(replacement, records);
+                scheduleFlush(RETRY_DELAY_MS);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Put changes the store failed to write back in front of those queued since.
+     * Called with the lock held.
+     */
+    private void requeue(List<Task> replacement, List<TaskRecord> records) {
+        if (pendingReplacement != null) {
+            // A newer full replacement supersedes everything that failed
+            return;
+        }
+        pendingReplacement = replacement;
+        LinkedHashMap<TaskId, TaskRecord> merged = new LinkedHashMap<>();
+        for (TaskRecord record : records) {
+            merged.put(record.getTaskId(), record);
+        }
+        for (TaskRecord newer : pending.values()) {
+            TaskRecord folded = coalesce(merged.get(newer.getTaskId()), newer);
+            if (folded == null) {
+                merged.remove(newer.getTaskId());
+            } else {
+                merged.put(newer.getTaskId(), folded);
+            }
+        }
+        pending = merged;
+    }
+
+    /**
+     * Write-behind counters. The coalescing ratio is how many submitted changes
+     * each written change stood for.
+     */
+    public static class Metrics {
+        private final int flushCount;
+        private final int failedFlushCount;
+        private final long submittedChanges;
+        private final long writtenChanges;
+        private final long totalFlushMillis;
+        private final long maxFlushMillis;
+
+        Metrics(int flushCount, int failedFlushCount, long submittedChanges, long writtenChanges,
+                long totalFlushMillis, long maxFlushMillis) {
+            this.flushCount = flushCount;
+            this.failedFlushCount = failedFlushCount;
+            this.submittedChanges = submittedChanges;
+            this.writtenChanges = writtenChanges;
+            this.totalFlushMillis = totalFlushMillis;
+            this.maxFlushMillis = maxFlushMillis;
+        }
+
+        public int getFlushCount() {
+            return flushCount;
+        }
+
+        /**
+         * Flushes the wrapped store failed, whose changes were queued again
+         */
+        public int getFailedFlushCount() {
+            return failedFlushCount;
+        }
+
+        public double getCoalescingRatio() {
+            return writtenChanges > 0 ? (double) submittedChanges / writtenChanges : 0;
+        }
+
+        public double getAverageFlushMillis() {
+            return flushCount > 0 ? (double) totalFlushMillis / flushCount : 0;
+        }
+
+        public long getMaxFlushMillis() {
+            return maxFlushMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "flushes=%d, failed=%d, coalescing=%.2f, avg=%.1f ms, max=%d ms",
+                    flushCount, failedFlushCount, getCoalescingRatio(), getAverageFlushMillis(), maxFlushMillis);
+        }
+    }
+}
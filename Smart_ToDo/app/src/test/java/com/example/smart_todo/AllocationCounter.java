@@ -0,0 +1,66 @@
+package com.example.smart_todo;
+
+import java.lang.reflect.Method;
+
+/**
+ * Bytes allocated by this thread, from the HotSpot thread bean. Looked up by name,
+ * since unit tests compile against android.jar, which has no java.lang.management.
+ */
+class AllocationCounter {
+    private final Object threads;
+    private final Method getThreadAllocatedBytes;
+
+    private AllocationCounter(Object threads, Method getThreadAllocatedBytes) {
+        this.threads = threads;
+        this.getThreadAllocatedBytes = getThreadAllocatedBytes;
+    }
+
+    static AllocationCounter create() {
+        try {
+            Object threads = Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getThreadMXBean").invoke(null);
+            Method method = Class.forName("com.sun.management.ThreadMXBean")
+                    .getMethod("getThreadAllocatedBytes", long.class);
+            return new AllocationCounter(threads, method);
+        } catch (ReflectiveOperationException e) {
+            return new AllocationCounter(null, null);
+        }
+    }
+
+    /**
+     * Bytes allocated so far, or -1 where the JVM does not count them
+     */
+    long allocatedBytes() {
+        if (getThreadAllocatedBytes == null) {
+            return -1;
+        }
+        try {
+            return (Long) getThreadAllocatedBytes.invoke(threads, Thread.currentThread().getId());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The fewest bytes one run of the work allocated over a few rounds, so a round that
+     * happened to include JIT or class loading is not the one counted; -1 where the JVM
+     * does not count allocation
+     */
+    long leastAllocated(Work work) throws Exception {
+        long least = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long before = allocatedBytes();
+            work.run();
+            long after = allocatedBytes();
+            if (before < 0 || after < 0) {
+                return -1;
+            }
+            least = Math.min(least, after - before);
+        }
+        return least;
+    }
+
+    interface Work {
+        void run() throws Exception;
+    }
+}
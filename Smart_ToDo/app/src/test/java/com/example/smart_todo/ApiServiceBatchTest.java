@@ -0,0 +1,191 @@
+package com.example.smart_todo;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class ApiServiceBatchTest {
+    private final MockWebServer server = new MockWebServer();
+    private ApiService apiService;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        apiService = new ApiService(server.url("/chat").toString());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void batch_isPostedAsAJsonArrayToChatBatch() throws Exception {
+        server.enqueue(json("[" + result("Email Bob", "Work", "Today") + "]"));
+
+        process("email bob today");
+
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("POST", request.getMethod());
+        assertEquals("/chat/batch", request.getPath());
+        assertEquals("[\"email bob today\"]", request.getBody().readUtf8());
+    }
+
+    @Test
+    public void results_areMatchedToInputsByPosition() throws Exception {
+        server.enqueue(json("[" + result("Email Bob", "work", "Today") + ","
+                + "{\"error\":\"model timed out\"},"
+                + result("Call mom", "Personal", "Anytime") + "]"));
+
+        Results results = process("email bob today", "buy milk", "call mom tomorrow");
+
+        assertEquals("Email Bob", results.tasks[0].getName());
+        assertEquals("Work", results.tasks[0].getCategory());
+        assertEquals(2, results.tasks[0].getPriority());
+        assertFalse(results.local[0]);
+        // The backend failed this one alone
+        assertTrue(results.local[1]);
+        assertNotNull(results.tasks[1]);
+        // The time said in the input wins over the backend's "Anytime"
+        assertEquals("Tomorrow", results.tasks[2].getTime());
+        assertFalse(results.local[2]);
+        assertEquals(1, results.classifiedLocally);
+    }
+
+    @Test
+    public void shortResponse_classifiesTheMissingInputsLocally() throws Exception {
+        server.enqueue(json("[" + result("Email Bob", "Work", "Today") + "]"));
+
+        Results results = process("email bob today", "buy milk");
+
+        assertFalse(results.local[0]);
+        assertTrue(results.local[1]);
+        assertEquals(1, results.classifiedLocally);
+    }
+
+    @Test
+    public void failedBatch_isClassifiedLocally() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500).setBody("overloaded"));
+
+        Results results = process("email bob today", "buy milk");
+
+        assertTrue(results.local[0]);
+        assertTrue(results.local[1]);
+        assertEquals(2, results.classifiedLocally);
+    }
+
+    @Test
+    public void unreadableBatch_isClassifiedLocally() throws Exception {
+        server.enqueue(json("{\"task\":\"not a list\"}"));
+
+        Results results = process("email bob today");
+
+        assertTrue(results.local[0]);
+        assertEquals(1, results.classifiedLocally);
+    }
+
+    @Test
+    public void manyInputs_goInGroupsOfTen() throws Exception {
+        server.setDispatcher(new EchoDispatcher());
+        String[] inputs = new String[23];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = "task number " + i;
+        }
+
+        Results results = process(inputs);
+
+        assertEquals(3, server.getRequestCount());
+        assertEquals(0, results.classifiedLocally);
+        for (int i = 0; i < inputs.length; i++) {
+            assertEquals(inputs[i], results.tasks[i].getName());
+        }
+    }
+
+    @Test
+    public void classifiedInputs_areAnsweredFromCacheNextTime() throws Exception {
+        server.setDispatcher(new EchoDispatcher());
+        process("buy milk", "email bob");
+        assertEquals(1, server.getRequestCount());
+
+        Results results = process("Buy milk.", "email bob", "call mom");
+
+        // Only the new input is sent
+        assertEquals(2, server.getRequestCount());
+        server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("[\"call mom\"]", server.takeRequest(5, TimeUnit.SECONDS).getBody().readUtf8());
+        assertEquals("buy milk", results.tasks[0].getName());
+        assertEquals(0, results.classifiedLocally);
+    }
+
+    private Results process(String... inputs) throws InterruptedException {
+        Results results = new Results(inputs.length);
+        apiService.processTasks(Arrays.asList(inputs), results);
+        assertTrue(results.done.await(5, TimeUnit.SECONDS));
+        return results;
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    private static String result(String task, String category, String time) {
+        return "{\"task\":\"" + task + "\",\"category\":\"" + category + "\",\"time\":\"" + time + "\"}";
+    }
+
+    /**
+     * Answers every input of a batch with a task named after it
+     */
+    private static class EchoDispatcher extends Dispatcher {
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            // Read a copy, so the test can still read the body from takeRequest()
+            JsonArray inputs = JsonParser.parseString(request.getBody().clone().readUtf8()).getAsJsonArray();
+            List<String> items = new ArrayList<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                items.add(result(inputs.get(i).getAsString(), "Personal", "Anytime"));
+            }
+            return json("[" + String.join(",", items) + "]");
+        }
+    }
+
+    private static class Results implements ApiService.BatchCallback {
+        final Task[] tasks;
+        final boolean[] local;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile int classifiedLocally = -1;
+
+        Results(int size) {
+            tasks = new Task[size];
+            local = new boolean[size];
+        }
+
+        @Override
+        public synchronized void onTask(int index, Task task, boolean classifiedLocally) {
+            tasks[index] = task;
+            local[index] = classifiedLocally;
+        }
+
+        @Override
+        public void onComplete(int classifiedLocally) {
+            this.classifiedLocally = classifiedLocally;
+            done.countDown();
+        }
+    }
+}
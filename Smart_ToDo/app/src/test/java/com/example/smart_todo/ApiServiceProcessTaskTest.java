@@ -0,0 +1,85 @@
+package com.example.smart_todo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+public class ApiServiceProcessTaskTest {
+    private final MockWebServer server = new MockWebServer();
+    private ApiService apiService;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        apiService = new ApiService(server.url("/chat").toString());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void sameInputInFlight_sharesOneRequest_andEachCallerGetsItsOwnTask() throws Exception {
+        // Held back so the second call finds the first one still in flight
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"task\":\"Buy milk\",\"category\":\"Shopping\",\"time\":\"Today\"}")
+                .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        Received first = new Received();
+        Received second = new Received();
+        apiService.processTask("Buy milk", first);
+        apiService.processTask("buy milk ", second);
+
+        assertTrue(first.done.await(5, TimeUnit.SECONDS));
+        assertTrue(second.done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertNotSame(first.task, second.task);
+        assertEquals(first.task.getTaskId(), second.task.getTaskId());
+        assertEquals("Buy milk", second.task.getName());
+        assertEquals("Shopping", second.task.getCategory());
+    }
+
+    @Test
+    public void cancelledJoiner_isNotCalled_andTheRequestCarriesOn() throws Exception {
+        server.enqueue(new MockResponse()
+                .setBody("{\"task\":\"Call mum\",\"category\":\"Personal\",\"time\":\"Anytime\"}")
+                .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        Received first = new Received();
+        Received second = new Received();
+        apiService.processTask("call mum", first);
+        apiService.processTask("Call mum", second).cancel();
+
+        assertTrue(first.done.await(5, TimeUnit.SECONDS));
+        assertEquals("Call mum", first.task.getName());
+        assertNull(second.task);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private static class Received implements ApiService.ApiCallback {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Task task;
+
+        @Override
+        public void onSuccess(Task task) {
+            this.task = task;
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(String errorMessage) {
+            fail(errorMessage);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.smart_todo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+    private static final long OPEN_MS = 30000;
+
+    private long now = 1000;
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 3, OPEN_MS, () -> now);
+
+    @Test
+    public void opensAfterThresholdFailuresInARow() {
+        recordFailures(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.recordSuccess();
+        recordFailures(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        recordFailures(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void open_becomesHalfOpen_thenClosesOnTrialSuccess() {
+        recordFailures(3);
+        now += OPEN_MS - 1;
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now += 1;
+        // Read without asking to send, as MongoRequestExecutor does before queueing
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        // Only one trial at a time
+        assertFalse(breaker.allowRequest());
+
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedTrial_reopensForAnotherFullWait() {
+        recordFailures(3);
+        now += OPEN_MS;
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        now += OPEN_MS - 1;
+        assertFalse(breaker.allowRequest());
+        now += 1;
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void success_closesFromAnyState() {
+        recordFailures(3);
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        recordFailures(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void recordFailures(int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.recordFailure();
+        }
+    }
+}
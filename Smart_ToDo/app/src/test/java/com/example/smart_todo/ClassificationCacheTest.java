@@ -0,0 +1,280 @@
+package com.example.smart_todo;
+
+import android.content.SharedPreferences;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class ClassificationCacheTest {
+    private long now = 1000;
+    private final FakePreferences preferences = new FakePreferences();
+    private final QueuedExecutor diskExecutor = new QueuedExecutor();
+
+    @Test
+    public void memoryEntry_expiresAfterTtl() {
+        ClassificationCache cache = new ClassificationCache(null, null, () -> now);
+        cache.put("Buy milk", classified("Buy milk"));
+
+        now += ClassificationCache.ENTRY_TTL_MS;
+        assertNotNull(cache.get("buy milk "));
+        now += 1;
+        assertNull(cache.get("buy milk"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void memory_evictsLeastRecentlyUsedBeyond64Entries() {
+        ClassificationCache cache = new ClassificationCache(null, null, () -> now);
+        for (int i = 0; i < ClassificationCache.MEMORY_ENTRIES; i++) {
+            cache.put("input " + i, classified("Task " + i));
+        }
+        // Used again, so input 1 becomes the eldest
+        assertNotNull(cache.get("input 0"));
+
+        cache.put("input 64", classified("Task 64"));
+        assertNull(cache.get("input 1"));
+        assertNotNull(cache.get("input 0"));
+        assertNotNull(cache.get("input 2"));
+        assertNotNull(cache.get("input 64"));
+    }
+
+    @Test
+    public void disk_keepsNewest256Entries() {
+        ClassificationCache cache = diskCache();
+        diskExecutor.runAll();
+        for (int i = 0; i <= ClassificationCache.DISK_ENTRIES; i++) {
+            now++;
+            cache.put("input " + i, classified("Task " + i));
+        }
+        diskExecutor.runAll();
+
+        assertEquals(ClassificationCache.DISK_ENTRIES, preferences.values.size());
+        assertFalse(preferences.values.containsKey("input 0"));
+
+        // After a restart only the disk tier has anything
+        ClassificationCache restarted = diskCache();
+        diskExecutor.runAll();
+        assertNull(restarted.get("input 0"));
+        assertEquals("Task 1", restarted.get("input 1").getName());
+        assertEquals("Task 256", restarted.get("input 256").getName());
+    }
+
+    @Test
+    public void diskIndex_isLoadedOnTheExecutor() {
+        diskCache().put("Call mum", classified("Call mum"));
+        diskExecutor.runAll();
+        preferences.getAllCalls = 0;
+
+        ClassificationCache cache = diskCache();
+        assertEquals(0, preferences.getAllCalls);
+        // Until the index is read, lookups see the memory tier only
+        assertNull(cache.get("call mum"));
+
+        diskExecutor.runAll();
+        assertEquals(1, preferences.getAllCalls);
+        Task task = cache.get("call mum");
+        assertEquals("Call mum", task.getName());
+        assertEquals("Personal", task.getCategory());
+        assertEquals(2, task.getPriority());
+        assertTrue(task.isImportant());
+    }
+
+    @Test
+    public void diskEntry_expiresAfterTtl_andIsRemoved() {
+        ClassificationCache cache = diskCache();
+        cache.put("Pay rent", classified("Pay rent"));
+        diskExecutor.runAll();
+
+        ClassificationCache restarted = diskCache();
+        diskExecutor.runAll();
+        now += ClassificationCache.ENTRY_TTL_MS + 1;
+        assertNull(restarted.get("pay rent"));
+        diskExecutor.runAll();
+        assertFalse(preferences.values.containsKey("pay rent"));
+    }
+
+    @Test
+    public void expiredDiskEntries_areDroppedWhenTheIndexIsLoaded() {
+        diskCache().put("Pay rent", classified("Pay rent"));
+        diskExecutor.runAll();
+        preferences.values.put("unreadable", "{");
+
+        now += ClassificationCache.ENTRY_TTL_MS + 1;
+        diskCache();
+        diskExecutor.runAll();
+        assertTrue(preferences.values.isEmpty());
+    }
+
+    private ClassificationCache diskCache() {
+        return new ClassificationCache(preferences, diskExecutor, () -> now);
+    }
+
+    private static Task classified(String name) {
+        Task task = new Task(name, "Personal", "Today");
+        task.setPriority(2);
+        task.setImportant(true);
+        return task;
+    }
+
+    /**
+     * Runs queued tasks only when asked, on the test thread
+     */
+    private static class QueuedExecutor implements Executor {
+        private final Queue<Runnable> queue = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            Runnable command;
+            while ((command = queue.poll()) != null) {
+                command.run();
+            }
+        }
+    }
+
+    /**
+     * SharedPreferences held in a map; edits are applied at once
+     */
+    private static class FakePreferences implements SharedPreferences {
+        final Map<String, Object> values = new HashMap<>();
+        int getAllCalls;
+
+        @Override
+        public Map<String, ?> getAll() {
+            getAllCalls++;
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            return values.containsKey(key) ? (String) values.get(key) : defValue;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            return values.containsKey(key) ? (Set<String>) values.get(key) : defValues;
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            return values.containsKey(key) ? (Integer) values.get(key) : defValue;
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            return values.containsKey(key) ? (Long) values.get(key) : defValue;
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            return values.containsKey(key) ? (Float) values.get(key) : defValue;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            return values.containsKey(key) ? (Boolean) values.get(key) : defValue;
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new FakeEditor();
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        private class FakeEditor implements Editor {
+            private final Map<String, Object> puts = new HashMap<>();
+            private final Set<String> removals = new HashSet<>();
+            private boolean clear;
+
+            @Override
+            public Editor putString(String key, String value) {
+                puts.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                puts.put(key, values);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                puts.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                puts.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                puts.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                puts.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                removals.add(key);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                clear = true;
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                // Same order as Android: clear, then removals, then puts
+                if (clear) {
+                    values.clear();
+                }
+                values.keySet().removeAll(removals);
+                values.putAll(puts);
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                commit();
+            }
+        }
+    }
+}
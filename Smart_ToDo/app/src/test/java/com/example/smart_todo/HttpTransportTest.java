@@ -0,0 +1,98 @@
+package com.example.smart_todo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class HttpTransportTest {
+    private final MockWebServer server = new MockWebServer();
+    private final HttpTransport transport = HttpTransport.getInstance();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void warmUp_getsTheHostRoot_andIsNotCounted() throws Exception {
+        String chatUrl = server.url("/chat").toString();
+        HttpTransport.HostMetrics metrics = transport.getMetrics(chatUrl);
+        long requestsBefore = metrics.getRequestCount();
+        long failuresBefore = metrics.getFailureCount();
+        server.enqueue(new MockResponse().setBody("Welcome"));
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        transport.warmUp(chatUrl);
+        RecordedRequest warmUp = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("GET", warmUp.getMethod());
+        assertEquals("/", warmUp.getPath());
+
+        Request chat = new Request.Builder()
+                .url(chatUrl)
+                .post(RequestBody.create("{}", MediaType.get("application/json")))
+                .build();
+        try (Response response = transport.getClient().newCall(chat).execute()) {
+            assertTrue(response.isSuccessful());
+            response.body().string();
+        }
+        assertEquals("/chat", server.takeRequest(5, TimeUnit.SECONDS).getPath());
+        assertEquals(requestsBefore + 1, metrics.getRequestCount());
+        assertEquals(failuresBefore, metrics.getFailureCount());
+    }
+
+    @Test
+    public void cancelledCall_waitingForASlot_failsWithoutTheSlotBeingFreed() throws Exception {
+        String url = server.url("/find").toString();
+        transport.configureHost(url, 1);
+        try {
+            server.enqueue(new MockResponse().setBody("first"));
+            // Holds the host's only slot until its body is closed
+            Response first = transport.getClient().newCall(new Request.Builder().url(url).build()).execute();
+
+            Call second = transport.getClient().newCall(new Request.Builder().url(url).build());
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            CountDownLatch done = new CountDownLatch(1);
+            new Thread(() -> {
+                try (Response response = second.execute()) {
+                    fail("Sent while the slot was taken");
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+                done.countDown();
+            }).start();
+            while (transport.getMetrics(url).getWaiting() == 0) {
+                Thread.sleep(10);
+            }
+
+            second.cancel();
+            assertTrue(done.await(HttpTransport.SLOT_POLL_MS * 10, TimeUnit.MILLISECONDS));
+            assertTrue(failure.get() instanceof IOException);
+            assertEquals(0, transport.getMetrics(url).getWaiting());
+            assertEquals(1, server.getRequestCount());
+            first.close();
+        } finally {
+            transport.configureHost(url, 5);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.smart_todo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JsonObjectScannerTest {
+    @Test
+    public void objectSplitAcrossFragments_isFoundOnceComplete() {
+        JsonObjectScanner scanner = new JsonObjectScanner();
+
+        assertFalse(scanner.append("Sure! {\"task\": \"Buy"));
+        assertFalse(scanner.append(" milk\", \"category\""));
+        assertNull(scanner.getObject());
+        assertEquals("Sure! {\"task\": \"Buy milk\", \"category\"", scanner.getText());
+
+        assertTrue(scanner.append(": \"Shopping\"} Anything else?"));
+        assertEquals("{\"task\": \"Buy milk\", \"category\": \"Shopping\"}", scanner.getObject());
+    }
+
+    @Test
+    public void nestedObjects_endWithTheOutermost() {
+        JsonObjectScanner scanner = new JsonObjectScanner();
+
+        assertFalse(scanner.append("{\"task\": {\"name\": \"Gym\"}"));
+        assertTrue(scanner.append(", \"time\": \"Tonight\"}"));
+        assertEquals("{\"task\": {\"name\": \"Gym\"}, \"time\": \"Tonight\"}", scanner.getObject());
+    }
+
+    @Test
+    public void bracesInsideStrings_areIgnored() {
+        JsonObjectScanner scanner = new JsonObjectScanner();
+
+        assertFalse(scanner.append("{\"task\": \"Reply to } and {\""));
+        assertTrue(scanner.append("}"));
+        assertEquals("{\"task\": \"Reply to } and {\"}", scanner.getObject());
+    }
+
+    @Test
+    public void escapedQuotes_doNotEndTheString() {
+        JsonObjectScanner scanner = new JsonObjectScanner();
+
+        // The escape and the quote it escapes arrive in different fragments
+        assertFalse(scanner.append("{\"task\": \"Read \\"));
+        assertFalse(scanner.append("\"Dune}\\\"\""));
+        assertTrue(scanner.append("}"));
+        assertEquals("{\"task\": \"Read \\\"Dune}\\\"\"}", scanner.getObject());
+    }
+
+    @Test
+    public void escapedBackslash_beforeTheClosingQuote_endsTheString() {
+        JsonObjectScanner scanner = new JsonObjectScanner();
+
+        assertTrue(scanner.append("{\"path\": \"C:\\\\\"}"));
+        assertEquals("{\"path\": \"C:\\\\\"}", scanner.getObject());
+    }
+
+    @Test
+    public void textBeforeTheFirstBrace_isSkipped() {
+        JsonObjectScanner scanner = new JsonObjectScanner();
+
+        assertFalse(scanner.append("The answer is \"}\" ... "));
+        assertTrue(scanner.append("{}"));
+        assertEquals("{}", scanner.getObject());
+    }
+
+    @Test
+    public void firstObject_isKeptOnceFound() {
+        JsonObjectScanner scanner = new JsonObjectScanner();
+
+        assertTrue(scanner.append("{\"task\": \"One\"} {\"task\": \"Two\"}"));
+        assertTrue(scanner.append("{\"task\": \"Three\"}"));
+        assertEquals("{\"task\": \"One\"}", scanner.getObject());
+    }
+
+    @Test
+    public void unfinishedObject_isNotReported() {
+        JsonObjectScanner scanner = new JsonObjectScanner();
+
+        assertFalse(scanner.append("no json here"));
+        assertFalse(scanner.append("{\"task\": \"Cut off"));
+        assertNull(scanner.getObject());
+    }
+}
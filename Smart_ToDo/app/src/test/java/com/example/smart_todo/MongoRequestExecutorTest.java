@@ -0,0 +1,84 @@
+package com.example.smart_todo;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class MongoRequestExecutorTest {
+    private static final long OPEN_MS = 30000;
+
+    private volatile long now = 1000;
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 3, OPEN_MS, () -> now);
+    private final MongoRequestExecutor executor = new MongoRequestExecutor(breaker);
+
+    @After
+    public void shutDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void openBreaker_rejectsThenLetsATrialThroughOnceTheWaitIsOver() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(run(() -> { throw new IOException("timeout"); }) instanceof IOException);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, executor.getCircuitState());
+        assertTrue(run(() -> { }) instanceof RejectedExecutionException);
+
+        now += OPEN_MS;
+        assertNull(run(() -> { }));
+        assertEquals(CircuitBreaker.State.CLOSED, awaitState(CircuitBreaker.State.CLOSED));
+        assertNull(run(() -> { }));
+    }
+
+    @Test
+    public void clientErrors_doNotOpenTheBreaker() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(run(() -> { throw new HttpStatusException(404); }) instanceof HttpStatusException);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, executor.getCircuitState());
+    }
+
+    @Test
+    public void serverErrorsAndThrottling_openTheBreaker() throws Exception {
+        run(() -> { throw new HttpStatusException(503); });
+        run(() -> { throw new HttpStatusException(429); });
+        run(() -> { throw new HttpStatusException(500); });
+        assertEquals(CircuitBreaker.State.OPEN, executor.getCircuitState());
+    }
+
+    /**
+     * Run the operation and wait for it. onFailure is called after the outcome is recorded.
+     * @return what onFailure was given, or null if the operation succeeded
+     */
+    private Exception run(MongoRequestExecutor.Operation operation) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        executor.execute(() -> {
+            operation.run();
+            done.countDown();
+        }, e -> {
+            failure.set(e);
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        return failure.get();
+    }
+
+    /**
+     * The breaker's state once it reaches the expected one, or after a second. A success
+     * is recorded just after the operation returns, so it may not be in yet.
+     */
+    private CircuitBreaker.State awaitState(CircuitBreaker.State expected) throws InterruptedException {
+        for (int i = 0; i < 100 && executor.getCircuitState() != expected; i++) {
+            Thread.sleep(10);
+        }
+        return executor.getCircuitState();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.smart_todo;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * MongoTaskReader against the tree decode it replaced: the body read into a String,
+ * parsed with JsonParser and turned into tasks element by element. Both must decode
+ * every field the same, and streaming must allocate less than half as much per
+ * document. Allocation is checked rather than time, since it does not depend on the
+ * machine; where the JVM does not count it only the decoded tasks are compared.
+ */
+public class MongoTaskReaderBenchmarkTest {
+    private final AllocationCounter counter = AllocationCounter.create();
+
+    @Test
+    public void streamingVersusTree_onePage() throws Exception {
+        // One find response at MongoDBTaskManager's page size
+        compare(500);
+    }
+
+    @Test
+    public void streamingVersusTree_largeResponse() throws Exception {
+        compare(20_000);
+    }
+
+    private void compare(int documentCount) throws Exception {
+        byte[] body = buildResponse(documentCount);
+
+        List<Task> streamed = readStreaming(body);
+        List<Task> tree = readTree(body);
+        assertEquals(documentCount, streamed.size());
+        for (int i = 0; i < documentCount; i++) {
+            assertSameTask(tree.get(i), streamed.get(i));
+        }
+
+        long streamingBytes = counter.leastAllocated(() -> readStreaming(body));
+        long treeBytes = counter.leastAllocated(() -> readTree(body));
+        if (streamingBytes >= 0 && treeBytes >= 0) {
+            String figures = String.format(Locale.ROOT, "%,d documents: streaming %,d bytes/doc, tree %,d bytes/doc",
+                    documentCount, streamingBytes / documentCount, treeBytes / documentCount);
+            assertTrue(figures, streamingBytes * 2 < treeBytes);
+        }
+    }
+
+    private static List<Task> readStreaming(byte[] body) throws IOException {
+        return MongoTaskReader.readPage(new InputStreamReader(
+                new ByteArrayInputStream(body), StandardCharsets.UTF_8)).getTasks();
+    }
+
+    private static void assertSameTask(Task expected, Task actual) {
+        assertEquals(expected.getTaskId(), actual.getTaskId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getTime(), actual.getTime());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getDueDate(), actual.getDueDate());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+        assertEquals(expected.isCompleted(), actual.isCompleted());
+        assertEquals(expected.isImportant(), actual.isImportant());
+        assertEquals(expected.getPriority(), actual.getPriority());
+        assertEquals(0, actual.takeDirtyFields());
+    }
+
+    /**
+     * The decode MongoDBTaskManager did before MongoTaskReader
+     */
+    private static List<Task> readTree(byte[] body) {
+        String text = new String(body, StandardCharsets.UTF_8);
+        List<Task> tasks = new ArrayList<>();
+        for (JsonElement element : JsonParser.parseString(text).getAsJsonObject().getAsJsonArray("documents")) {
+            JsonObject doc = element.getAsJsonObject();
+            TaskId id = has(doc, "id") ? TaskId.fromString(doc.get("id").getAsString()) : null;
+            Date createdAt = has(doc, "createdAt") ? new Date(doc.get("createdAt").getAsLong()) : null;
+            Task task = Task.restore(id, createdAt);
+            if (has(doc, "name")) task.setName(doc.get("name").getAsString());
+            if (has(doc, "description")) task.setDescription(doc.get("description").getAsString());
+            if (has(doc, "category")) task.setCategory(doc.get("category").getAsString());
+            if (has(doc, "time")) task.setTime(doc.get("time").getAsString());
+            task.setCompleted(doc.has("completed") && doc.get("completed").getAsBoolean());
+            task.setImportant(doc.has("important") && doc.get("important").getAsBoolean());
+            if (has(doc, "priority")) task.setPriority(doc.get("priority").getAsInt());
+            if (has(doc, "dueDate")) task.setDueDate(new Date(doc.get("dueDate").getAsLong()));
+            if (has(doc, "updatedAt")) task.setUpdatedAt(doc.get("updatedAt").getAsLong());
+            task.clearDirtyFields();
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static boolean has(JsonObject doc, String field) {
+        return doc.has(field) && !doc.get(field).isJsonNull();
+    }
+
+    /**
+     * A find response of whole task documents, as the Data API sends it
+     */
+    private static byte[] buildResponse(int count) {
+        StringBuilder body = new StringBuilder("{\"documents\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"_id\":{\"$oid\":\"65f0").append(Integer.toHexString(i)).append("\"},")
+                    .append("\"id\":\"").append(new TaskId(i, i)).append("\",")
+                    .append("\"name\":\"Task ").append(i).append("\",")
+                    .append("\"description\":\"Notes for task ").append(i)
+                    .append(", long enough to be typical of what people type\",")
+                    .append("\"category\":\"Work\",\"time\":\"Tomorrow\",")
+                    .append("\"createdAt\":").append(1_600_000_000_000L + i).append(',')
+                    .append("\"dueDate\":").append(i % 4 == 0 ? String.valueOf(1_700_000_000_000L + i) : "null")
+                    .append(",\"updatedAt\":").append(1_650_000_000_000L + i).append(',')
+                    .append("\"completed\":").append(i % 2 == 0).append(',')
+                    .append("\"important\":").append(i % 5 == 0).append(',')
+                    .append("\"priority\":").append(i % 3).append('}');
+        }
+        return body.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.smart_todo;
+
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class MongoTaskReaderTest {
+    private static final String FIRST_ID = "00000000-0000-4000-8000-000000000001";
+    private static final String SECOND_ID = "00000000-0000-4000-8000-000000000002";
+    private static final String THIRD_ID = "00000000-0000-4000-8000-000000000003";
+
+    @Test
+    public void readPage_decodesEveryField() throws IOException {
+        MongoTaskReader.Page page = read("{\"documents\":[{\"_id\":{\"$oid\":\"65f0\"},"
+                + "\"id\":\"" + FIRST_ID + "\",\"name\":\"Dentist\",\"description\":\"Check-up\","
+                + "\"category\":\"Health\",\"time\":\"Today 3 PM\",\"createdAt\":1000,"
+                + "\"dueDate\":9000,\"updatedAt\":2000,\"completed\":true,\"important\":true,"
+                + "\"priority\":2}]}");
+
+        assertEquals(1, page.getTasks().size());
+        Task task = page.getTasks().get(0);
+        assertEquals(TaskId.fromString(FIRST_ID), task.getTaskId());
+        assertEquals("Dentist", task.getName());
+        assertEquals("Check-up", task.getDescription());
+        assertEquals("Health", task.getCategory());
+        assertEquals("Today 3 PM", task.getTime());
+        assertEquals(new Date(1000), task.getCreatedAt());
+        assertEquals(new Date(9000), task.getDueDate());
+        assertEquals(2000, task.getUpdatedAt());
+        assertTrue(task.isCompleted());
+        assertTrue(task.isImportant());
+        assertEquals(2, task.getPriority());
+        assertEquals(0, task.takeDirtyFields());
+    }
+
+    @Test
+    public void readPage_skipsNullsAndUnknownFields() throws IOException {
+        MongoTaskReader.Page page = read("{\"documents\":[{\"id\":\"" + FIRST_ID + "\","
+                + "\"name\":\"Gym\",\"dueDate\":null,\"tags\":[\"a\",{\"b\":1}],\"extra\":{\"x\":[1,2]},"
+                + "\"category\":\"Health\",\"time\":\"Tonight\",\"createdAt\":5}]}");
+
+        Task task = page.getTasks().get(0);
+        assertEquals("Gym", task.getName());
+        assertNull(task.getDueDate());
+        assertEquals("Health", task.getCategory());
+        assertEquals(0, task.getPriority());
+    }
+
+    @Test
+    public void readPage_collectsTombstonesApart() throws IOException {
+        MongoTaskReader.Page page = read("{\"documents\":["
+                + document(FIRST_ID, 100)
+                + ",{\"id\":\"" + SECOND_ID + "\",\"deleted\":true,\"updatedAt\":300}"
+                + "," + document(THIRD_ID, 200) + "]}");
+
+        assertEquals(3, page.getDocumentCount());
+        assertEquals(2, page.getTasks().size());
+        assertEquals(Long.valueOf(300), page.getDeletedTasks().get(SECOND_ID));
+        assertEquals(THIRD_ID, page.getLastId());
+        assertEquals(300, page.getMaxUpdatedAt());
+    }
+
+    @Test
+    public void readPage_leavesDescriptionUnloadedWhenNotProjected() throws IOException {
+        JsonObject summary = new JsonObject();
+        summary.addProperty("name", 1);
+        summary.addProperty("updatedAt", 1);
+        MongoTaskReader.Page summaries = MongoTaskReader.readPage(new StringReader(
+                "{\"documents\":[" + document(FIRST_ID, 1) + "]}"), summary);
+        assertFalse(summaries.getTasks().get(0).isDescriptionLoaded());
+
+        summary.addProperty("description", 1);
+        MongoTaskReader.Page full = MongoTaskReader.readPage(new StringReader(
+                "{\"documents\":[" + document(FIRST_ID, 1) + "]}"), summary);
+        assertTrue(full.getTasks().get(0).isDescriptionLoaded());
+    }
+
+    @Test
+    public void readPage_ofEmptyOrMissingDocuments_isEmpty() throws IOException {
+        MongoTaskReader.Page empty = read("{\"documents\":[]}");
+        assertEquals(0, empty.getDocumentCount());
+        assertNull(empty.getLastId());
+        assertEquals(0, empty.getMaxUpdatedAt());
+
+        MongoTaskReader.Page missing = read("{\"error\":\"none\"}");
+        assertEquals(0, missing.getDocumentCount());
+        assertTrue(missing.getTasks().isEmpty());
+    }
+
+    @Test
+    public void pages_continueFromTheLastIdOfTheFullPage() throws IOException {
+        // Two pages of a limit-2 find in id order, as fetchPages reads them
+        String[] responses = {
+                "{\"documents\":[" + document(FIRST_ID, 10)
+                        + ",{\"id\":\"" + SECOND_ID + "\",\"deleted\":true,\"updatedAt\":20}]}",
+                "{\"documents\":[" + document(THIRD_ID, 30) + "]}"
+        };
+        int pageSize = 2;
+        int tasks = 0;
+        int tombstones = 0;
+        String after = null;
+        for (String response : responses) {
+            MongoTaskReader.Page page = read(response);
+            tasks += page.getTasks().size();
+            tombstones += page.getDeletedTasks().size();
+            after = page.getLastId();
+            if (page.getDocumentCount() < pageSize) {
+                break;
+            }
+            // A full page: the tombstone still moves the cursor on
+            assertEquals(SECOND_ID, after);
+        }
+
+        assertEquals(2, tasks);
+        assertEquals(1, tombstones);
+        assertEquals(THIRD_ID, after);
+    }
+
+    @Test(expected = IOException.class)
+    public void readPage_ofTruncatedBody_fails() throws IOException {
+        read("{\"documents\":[" + document(FIRST_ID, 1));
+    }
+
+    private static MongoTaskReader.Page read(String body) throws IOException {
+        return MongoTaskReader.readPage(new StringReader(body));
+    }
+
+    private static String document(String id, long updatedAt) {
+        return "{\"id\":\"" + id + "\",\"name\":\"Task " + updatedAt + "\",\"category\":\"Work\","
+                + "\"time\":\"Tomorrow\",\"createdAt\":1,\"updatedAt\":" + updatedAt + "}";
+    }
+}
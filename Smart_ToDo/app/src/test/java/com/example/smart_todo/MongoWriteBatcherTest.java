@@ -0,0 +1,468 @@
+package com.example.smart_todo;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class MongoWriteBatcherTest {
+    private static final String FIRST_ID = "00000000-0000-4000-8000-000000000001";
+    private static final String SECOND_ID = "00000000-0000-4000-8000-000000000002";
+    private static final String THIRD_ID = "00000000-0000-4000-8000-000000000003";
+    private static final String FOURTH_ID = "00000000-0000-4000-8000-000000000004";
+    // Long enough that nothing is sent until the test flushes
+    private static final long WINDOW_MS = 60_000;
+
+    private final MockWebServer server = new MockWebServer();
+    private final OkHttpClient client = new OkHttpClient();
+    private final InMemoryOutbox outbox = new InMemoryOutbox();
+    private final List<MongoWriteBatcher> batchers = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (MongoWriteBatcher batcher : batchers) {
+            batcher.shutdown();
+        }
+        server.shutdown();
+    }
+
+    @Test
+    public void writesOfOneBurst_areCoalescedPerTask() throws Exception {
+        server.setDispatcher(byAction("{\"insertedIds\":[\"a\"]}", "{\"matchedCount\":2}", "{\"documents\":[]}"));
+        MongoWriteBatcher batcher = newBatcher(toServer());
+        Recorder recorder = new Recorder(6);
+
+        batcher.insert(FIRST_ID, document(FIRST_ID, "Draft", 10), recorder);
+        batcher.update(FIRST_ID, set("name", "Final", 11), recorder);
+        // Created and deleted before anything went out: never sent
+        batcher.insert(SECOND_ID, document(SECOND_ID, "Gone", 10), recorder);
+        batcher.delete(SECOND_ID, 12, recorder);
+        batcher.update(THIRD_ID, set("completed", true, 20), recorder);
+        batcher.update(FOURTH_ID, set("completed", true, 20), recorder);
+        batcher.flush();
+
+        recorder.await();
+        assertEquals(0, recorder.errors.size());
+        assertEquals(2, server.getRequestCount());
+
+        JsonObject insert = body(server.takeRequest());
+        JsonArray documents = insert.getAsJsonArray("documents");
+        assertEquals(1, documents.size());
+        assertEquals(FIRST_ID, documents.get(0).getAsJsonObject().get("id").getAsString());
+        assertEquals("Final", documents.get(0).getAsJsonObject().get("name").getAsString());
+        assertEquals(11, documents.get(0).getAsJsonObject().get("updatedAt").getAsLong());
+
+        JsonObject update = body(server.takeRequest());
+        assertEquals(ids(THIRD_ID, FOURTH_ID), idsOf(update.getAsJsonObject("filter")));
+        assertEquals(0, outbox.size());
+    }
+
+    @Test
+    public void updatesThatDifferOnlyInUpdatedAt_shareOneUpdateMany() throws Exception {
+        server.setDispatcher(byAction("{\"insertedIds\":[]}", "{\"matchedCount\":2}", "{\"documents\":[]}"));
+        MongoWriteBatcher batcher = newBatcher(toServer());
+        Recorder recorder = new Recorder(4);
+
+        batcher.update(FIRST_ID, set("completed", true, 100), recorder);
+        batcher.update(SECOND_ID, set("completed", true, 300), recorder);
+        batcher.delete(THIRD_ID, 150, recorder);
+        batcher.delete(FOURTH_ID, 250, recorder);
+        batcher.flush();
+
+        recorder.await();
+        assertEquals(0, recorder.errors.size());
+        assertEquals(2, server.getRequestCount());
+        JsonObject update = body(server.takeRequest());
+        assertEquals(ids(FIRST_ID, SECOND_ID), idsOf(update.getAsJsonObject("filter")));
+        // Stamped with the latest of the group's times
+        assertEquals(300, update.getAsJsonObject("update").getAsJsonObject("$set").get("updatedAt").getAsLong());
+        JsonObject delete = body(server.takeRequest());
+        assertEquals(ids(THIRD_ID, FOURTH_ID), idsOf(delete.getAsJsonObject("filter")));
+        assertEquals(250, delete.getAsJsonObject("update").getAsJsonObject("$set").get("updatedAt").getAsLong());
+    }
+
+    @Test
+    public void updatesMoreThanAWindowApart_keepTheirOwnTime() throws Exception {
+        server.setDispatcher(byAction("{\"insertedIds\":[]}", "{\"matchedCount\":1}", "{\"documents\":[]}"));
+        MongoWriteBatcher batcher = newBatcher(toServer());
+        Recorder recorder = new Recorder(2);
+
+        // Queued while offline, for example
+        batcher.update(FIRST_ID, set("completed", true, 100), recorder);
+        batcher.update(SECOND_ID, set("completed", true, 100 + WINDOW_MS + 1), recorder);
+        batcher.flush();
+
+        recorder.await();
+        assertEquals(2, server.getRequestCount());
+        Set<Long> sentTimes = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            JsonObject update = body(server.takeRequest());
+            sentTimes.add(update.getAsJsonObject("update").getAsJsonObject("$set").get("updatedAt").getAsLong());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(100L, 100 + WINDOW_MS + 1)), sentTimes);
+    }
+
+    @Test
+    public void insertRetriedAfterAFailure_onlySendsTheTasksTheServerLacks() throws Exception {
+        // The first insertMany may have stored the first task before failing
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(json("{\"documents\":[{\"id\":\"" + FIRST_ID + "\"}]}"));
+        server.enqueue(json("{\"insertedIds\":[\"b\"]}"));
+        List<Long> sendTimes = Collections.synchronizedList(new ArrayList<>());
+        MongoWriteBatcher batcher = newBatcher(request -> {
+            sendTimes.add(System.currentTimeMillis());
+            return toServer().execute(request);
+        });
+        Recorder recorder = new Recorder(2);
+
+        batcher.insert(FIRST_ID, document(FIRST_ID, "First", 1), recorder);
+        batcher.insert(SECOND_ID, document(SECOND_ID, "Second", 1), recorder);
+        batcher.flush();
+
+        // Retried on its own after the backoff, not by another flush
+        recorder.await();
+        assertEquals(0, recorder.errors.size());
+        assertEquals(3, server.getRequestCount());
+        assertTrue("retried before the backoff", sendTimes.get(1) - sendTimes.get(0) >= 400);
+
+        assertTrue(server.takeRequest().getPath().endsWith("/action/insertMany"));
+        RecordedRequest find = server.takeRequest();
+        assertTrue(find.getPath().endsWith("/action/find"));
+        assertEquals(ids(FIRST_ID, SECOND_ID), idsOf(body(find).getAsJsonObject("filter")));
+        JsonArray resent = body(server.takeRequest()).getAsJsonArray("documents");
+        assertEquals(1, resent.size());
+        assertEquals(SECOND_ID, resent.get(0).getAsJsonObject().get("id").getAsString());
+        assertEquals(0, outbox.size());
+    }
+
+    @Test
+    public void updateFoldedIntoARetriedInsert_isSentWhenTheInsertWasStored() throws Exception {
+        // The insertMany stored the task but the answer was lost
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(json("{\"documents\":[{\"id\":\"" + FIRST_ID + "\"}]}"));
+        server.enqueue(json("{\"matchedCount\":1}"));
+        MongoWriteBatcher batcher = newBatcher(toServer());
+        Recorder recorder = new Recorder(2);
+
+        batcher.insert(FIRST_ID, document(FIRST_ID, "Draft", 1), recorder);
+        batcher.flush();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!outbox.allAttempted() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        batcher.update(FIRST_ID, set("name", "Final", 2), recorder);
+        batcher.flush();
+
+        recorder.await();
+        assertEquals(0, recorder.errors.size());
+        assertEquals(3, server.getRequestCount());
+        assertTrue(server.takeRequest().getPath().endsWith("/action/insertMany"));
+        assertTrue(server.takeRequest().getPath().endsWith("/action/find"));
+        RecordedRequest update = server.takeRequest();
+        assertTrue(update.getPath().endsWith("/action/updateMany"));
+        JsonObject fields = body(update).getAsJsonObject("update").getAsJsonObject("$set");
+        assertEquals("Final", fields.get("name").getAsString());
+        assertEquals(2, fields.get("updatedAt").getAsLong());
+        assertEquals(0, outbox.size());
+    }
+
+    @Test
+    public void badRequest_dropsOnlyTheMalformedWrite() throws Exception {
+        assertOnlyMalformedWriteIsDropped(400);
+    }
+
+    @Test
+    public void payloadTooLarge_dropsOnlyTheMalformedWrite() throws Exception {
+        assertOnlyMalformedWriteIsDropped(413);
+    }
+
+    @Test
+    public void unprocessableEntity_dropsOnlyTheMalformedWrite() throws Exception {
+        assertOnlyMalformedWriteIsDropped(422);
+    }
+
+    @Test
+    public void outbox_survivesARestart() throws Exception {
+        // The first run never reaches the server
+        MongoWriteBatcher offline = new MongoWriteBatcher(outbox, request -> {
+            throw new IOException("offline");
+        }, WINDOW_MS, 50);
+        offline.insert(FIRST_ID, document(FIRST_ID, "Written offline", 5), null);
+        offline.delete(SECOND_ID, 7, null);
+        offline.flush();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!outbox.allAttempted() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(outbox.allAttempted());
+        offline.shutdown();
+        assertEquals(2, outbox.size());
+
+        // The next run sends what is left as soon as it starts
+        server.setDispatcher(byAction("{\"insertedIds\":[\"a\"]}", "{\"matchedCount\":1}", "{\"documents\":[]}"));
+        newBatcher(toServer());
+
+        waitForEmptyOutbox();
+        List<String> paths = new ArrayList<>();
+        JsonObject tombstone = null;
+        for (int i = server.getRequestCount(); i > 0; i--) {
+            RecordedRequest request = server.takeRequest();
+            paths.add(request.getPath().substring(request.getPath().lastIndexOf('/') + 1));
+            if (request.getPath().endsWith("/action/updateMany")) {
+                tombstone = body(request);
+            }
+        }
+        // The insert was tried before, so the server is asked whether it already has it
+        assertEquals(Arrays.asList("find", "insertMany", "updateMany"), paths);
+        assertEquals(SECOND_ID, tombstone.getAsJsonObject("filter").get("id").getAsString());
+        JsonObject fields = tombstone.getAsJsonObject("update").getAsJsonObject("$set");
+        assertTrue(fields.get("deleted").getAsBoolean());
+        // Stamped with the time of the deletion, not of the send
+        assertEquals(7, fields.get("updatedAt").getAsLong());
+    }
+
+    private void assertOnlyMalformedWriteIsDropped(int code) throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(code).setBody("{\"error\":\"bad document\"}"));
+        server.enqueue(json("{\"insertedIds\":[\"a\"]}"));
+        server.enqueue(new MockResponse().setResponseCode(code).setBody("{\"error\":\"bad document\"}"));
+        MongoWriteBatcher batcher = newBatcher(toServer());
+        Recorder good = new Recorder(1);
+        Recorder bad = new Recorder(1);
+
+        batcher.insert(FIRST_ID, document(FIRST_ID, "Fine", 1), good);
+        batcher.insert(SECOND_ID, document(SECOND_ID, "Malformed", 1), bad);
+        batcher.flush();
+
+        good.await();
+        bad.await();
+        assertEquals(1, good.successes.size());
+        assertEquals(Collections.singletonList("HTTP error: " + code), bad.errors);
+        assertEquals(0, outbox.size());
+
+        assertEquals(2, body(server.takeRequest()).getAsJsonArray("documents").size());
+        assertEquals(FIRST_ID, firstDocumentId(server.takeRequest()));
+        assertEquals(SECOND_ID, firstDocumentId(server.takeRequest()));
+        // Not retried: the server would only give the same answer
+        batcher.flush();
+        Thread.sleep(200);
+        assertEquals(3, server.getRequestCount());
+    }
+
+    private MongoWriteBatcher newBatcher(MongoWriteBatcher.RequestRunner requestRunner) {
+        MongoWriteBatcher batcher = new MongoWriteBatcher(outbox, requestRunner, WINDOW_MS, 50);
+        batchers.add(batcher);
+        return batcher;
+    }
+
+    /**
+     * Sends the Data API requests MongoDBConfig builds to the mock server instead
+     */
+    private MongoWriteBatcher.RequestRunner toServer() {
+        return request -> {
+            Request local = request.newBuilder()
+                    .url(server.url("/action/" + request.url().pathSegments()
+                            .get(request.url().pathSize() - 1)))
+                    .build();
+            return client.newCall(local).execute();
+        };
+    }
+
+    private void waitForEmptyOutbox() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (outbox.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, outbox.size());
+    }
+
+    private static Dispatcher byAction(String insertMany, String updateMany, String find) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.endsWith("/action/insertMany")) {
+                    return json(insertMany);
+                }
+                if (path.endsWith("/action/updateMany")) {
+                    return json(updateMany);
+                }
+                return json(find);
+            }
+        };
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    private static JsonObject body(RecordedRequest request) {
+        return JsonParser.parseString(request.getBody().readUtf8()).getAsJsonObject();
+    }
+
+    private static String firstDocumentId(RecordedRequest request) {
+        return body(request).getAsJsonArray("documents").get(0).getAsJsonObject().get("id").getAsString();
+    }
+
+    private static Set<String> ids(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    private static Set<String> idsOf(JsonObject filter) {
+        Set<String> ids = new HashSet<>();
+        if (filter.get("id").isJsonPrimitive()) {
+            ids.add(filter.get("id").getAsString());
+            return ids;
+        }
+        for (JsonElement id : filter.getAsJsonObject("id").getAsJsonArray("$in")) {
+            ids.add(id.getAsString());
+        }
+        return ids;
+    }
+
+    private static JsonObject document(String id, String name, long updatedAt) {
+        JsonObject document = new JsonObject();
+        document.addProperty("id", id);
+        document.addProperty("name", name);
+        document.addProperty("updatedAt", updatedAt);
+        return document;
+    }
+
+    private static JsonObject set(String field, Object value, long updatedAt) {
+        JsonObject fields = new JsonObject();
+        if (value instanceof Boolean) {
+            fields.addProperty(field, (Boolean) value);
+        } else {
+            fields.addProperty(field, String.valueOf(value));
+        }
+        fields.addProperty("updatedAt", updatedAt);
+        JsonObject update = new JsonObject();
+        update.add("$set", fields);
+        return update;
+    }
+
+    /**
+     * Collects callback results, which arrive on the send thread
+     */
+    private static class Recorder implements MongoDBTaskManager.TaskOperationCallback {
+        final List<String> successes = Collections.synchronizedList(new ArrayList<>());
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch done;
+
+        Recorder(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onSuccess(String message) {
+            successes.add(message);
+            done.countDown();
+        }
+
+        @Override
+        public void onError(String error) {
+            errors.add(error);
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("callbacks not called", done.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * The outbox a process would find on disk, kept in memory so it can be handed to
+     * a second batcher as if the app had restarted
+     */
+    private static class InMemoryOutbox implements MongoOutbox {
+        private final List<Entry> entries = new ArrayList<>();
+        private long nextSeq = 1;
+
+        @Override
+        public synchronized long append(String taskId, int op, JsonObject document) {
+            long seq = nextSeq++;
+            entries.add(new Entry(seq, taskId, op, document.deepCopy(), 0));
+            return seq;
+        }
+
+        @Override
+        public synchronized List<Entry> peek(int limit) {
+            List<Entry> oldest = new ArrayList<>();
+            for (Entry entry : entries.subList(0, Math.min(limit, entries.size()))) {
+                // A fresh copy each time, as a database read would give
+                oldest.add(new Entry(entry.seq, entry.taskId, entry.op,
+                        entry.document.deepCopy(), entry.attempts));
+            }
+            return oldest;
+        }
+
+        @Override
+        public synchronized List<String> findTaskIds(int op) {
+            List<String> taskIds = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (entry.op == op && !taskIds.contains(entry.taskId)) {
+                    taskIds.add(entry.taskId);
+                }
+            }
+            return taskIds;
+        }
+
+        @Override
+        public synchronized int size() {
+            return entries.size();
+        }
+
+        @Override
+        public synchronized void remove(List<Long> seqs) {
+            entries.removeIf(entry -> seqs.contains(entry.seq));
+        }
+
+        synchronized boolean allAttempted() {
+            for (Entry entry : entries) {
+                if (entry.attempts == 0) {
+                    return false;
+                }
+            }
+            return !entries.isEmpty();
+        }
+
+        @Override
+        public synchronized void markAttempted(List<Long> seqs) {
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (seqs.contains(entry.seq)) {
+                    entries.set(i, new Entry(entry.seq, entry.taskId, entry.op, entry.document,
+                            entry.attempts + 1));
+                }
+            }
+        }
+    }
+}
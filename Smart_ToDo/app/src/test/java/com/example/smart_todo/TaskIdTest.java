@@ -0,0 +1,67 @@
+package com.example.smart_todo;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class TaskIdTest {
+    @Test
+    public void uuid_roundTripsThroughString() {
+        String text = UUID.randomUUID().toString();
+        TaskId id = TaskId.fromString(text);
+        assertTrue(id.isUuid());
+        assertEquals(text, id.toString());
+    }
+
+    @Test
+    public void uuid_holdsTheSameBitsAsUuid() {
+        UUID uuid = UUID.fromString("0123abcd-4567-89ef-fedc-ba9876543210");
+        TaskId id = TaskId.fromString(uuid.toString());
+        assertEquals(uuid.getMostSignificantBits(), id.getMostSignificantBits());
+        assertEquals(uuid.getLeastSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    @Test
+    public void random_isCanonicalUuid() {
+        TaskId id = TaskId.random();
+        assertTrue(TaskId.isUuid(id.toString()));
+        assertEquals(id, TaskId.fromString(id.toString()));
+    }
+
+    @Test
+    public void equalIds_haveEqualHashCodes() {
+        String text = "00000000-0000-0000-0000-00000000002a";
+        TaskId first = TaskId.fromString(text);
+        TaskId second = new TaskId(0, 42);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, new TaskId(0, 43));
+    }
+
+    @Test
+    public void nonCanonicalId_isKeptAsRawString() {
+        String upperCase = "0123ABCD-4567-89EF-FEDC-BA9876543210";
+        TaskId id = TaskId.fromString(upperCase);
+        assertFalse(id.isUuid());
+        assertEquals(upperCase, id.toString());
+        assertNotEquals(id, TaskId.fromString(upperCase.toLowerCase()));
+
+        TaskId legacy = TaskId.fromString("task-1");
+        assertEquals("task-1", legacy.toString());
+        assertEquals(legacy, TaskId.fromString("task-1"));
+    }
+
+    @Test
+    public void rawId_doesNotEqualZeroUuid() {
+        TaskId zero = new TaskId(0, 0);
+        assertNotEquals(zero, TaskId.fromString(""));
+        assertNotEquals(TaskId.fromString(""), zero);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullId_isRejected() {
+        TaskId.fromString(null);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.smart_todo;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cost of turning stored rows into tasks, at the list sizes the load path has to
+ * handle. Task.restore must build the same tasks as the reflection decode it replaced
+ * while allocating less, since it neither draws a random ID nor reads the clock for
+ * values that are then overwritten. Allocation is checked rather than time, since it
+ * does not depend on the machine; where the JVM does not count it only the tasks are compared.
+ */
+public class TaskLoadBenchmarkTest {
+    private final AllocationCounter counter = AllocationCounter.create();
+
+    @Test
+    public void restore_matchesReflection_andAllocatesLess_at10kRows() throws Exception {
+        compare(10_000);
+    }
+
+    @Test
+    public void restore_matchesReflection_andAllocatesLess_at100kRows() throws Exception {
+        compare(100_000);
+    }
+
+    private void compare(int rowCount) throws Exception {
+        Object[][] rows = buildRows(rowCount);
+
+        List<Task> restored = hydrateWithRestore(rows);
+        List<Task> reflected = hydrateWithReflection(rows);
+        assertEquals(rowCount, restored.size());
+        for (int i = 0; i < rowCount; i++) {
+            assertSameTask(rows[i], reflected.get(i), restored.get(i));
+        }
+
+        long restoreBytes = counter.leastAllocated(() -> hydrateWithRestore(rows));
+        long reflectionBytes = counter.leastAllocated(() -> hydrateWithReflection(rows));
+        if (restoreBytes >= 0 && reflectionBytes >= 0) {
+            String figures = String.format(Locale.ROOT, "%,d rows: Task.restore %,d bytes/record, reflection %,d bytes/record",
+                    rowCount, restoreBytes / rowCount, reflectionBytes / rowCount);
+            assertTrue(figures, restoreBytes < reflectionBytes);
+        }
+    }
+
+    /**
+     * Rows in the column order SqliteTaskStore reads: id, name, description, category,
+     * time, created_at, due_date, completed, important, priority, updated_at
+     */
+    private static Object[][] buildRows(int count) {
+        String[] categories = {"Work", "Personal", "Health", "Shopping"};
+        String[] times = {"Today", "Tomorrow", "This evening", "Next week"};
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new Object[]{
+                    new TaskId(i, i).toString(),
+                    "Task " + i,
+                    i % 3 == 0 ? "" : "Description of task " + i,
+                    categories[i % categories.length],
+                    times[i % times.length],
+                    1_600_000_000_000L + i,
+                    i % 5 == 0 ? 1_700_000_000_000L + i : null,
+                    i % 2 == 0,
+                    i % 7 == 0,
+                    i % 3,
+                    1_650_000_000_000L + i
+            };
+        }
+        return rows;
+    }
+
+    /**
+     * The decode SqliteTaskStore.readTask does, one row at a time
+     */
+    private static List<Task> hydrateWithRestore(Object[][] rows) {
+        List<Task> tasks = new ArrayList<>(rows.length);
+        for (Object[] row : rows) {
+            Task task = Task.restore(TaskId.fromString((String) row[0]), new Date((Long) row[5]));
+            task.setName((String) row[1]);
+            task.setDescription((String) row[2]);
+            task.setCategory((String) row[3]);
+            task.setTime((String) row[4]);
+            if (row[6] != null) {
+                task.setDueDate(new Date((Long) row[6]));
+            }
+            task.setCompleted((Boolean) row[7]);
+            task.setImportant((Boolean) row[8]);
+            task.setPriority((Integer) row[9]);
+            task.setUpdatedAt((Long) row[10]);
+            task.clearDirtyFields();
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * The decode as it was before Task.restore: a new task, with the stored ID and
+     * creation time forced in through reflection
+     */
+    private static List<Task> hydrateWithReflection(Object[][] rows) throws ReflectiveOperationException {
+        Field idField = Task.class.getDeclaredField("id");
+        Field createdAtField = Task.class.getDeclaredField("createdAt");
+        idField.setAccessible(true);
+        createdAtField.setAccessible(true);
+        List<Task> tasks = new ArrayList<>(rows.length);
+        for (Object[] row : rows) {
+            Task task = new Task();
+            idField.set(task, TaskId.fromString((String) row[0]));
+            createdAtField.set(task, new Date((Long) row[5]));
+            task.setName((String) row[1]);
+            task.setDescription((String) row[2]);
+            task.setCategory((String) row[3]);
+            task.setTime((String) row[4]);
+            if (row[6] != null) {
+                task.setDueDate(new Date((Long) row[6]));
+            }
+            task.setCompleted((Boolean) row[7]);
+            task.setImportant((Boolean) row[8]);
+            task.setPriority((Integer) row[9]);
+            task.setUpdatedAt((Long) row[10]);
+            task.clearDirtyFields();
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static void assertSameTask(Object[] row, Task expected, Task actual) {
+        assertEquals(row[0], actual.getId());
+        assertEquals(expected.getTaskId(), actual.getTaskId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getTime(), actual.getTime());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getDueDate(), actual.getDueDate());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+        assertEquals(expected.isCompleted(), actual.isCompleted());
+        assertEquals(expected.isImportant(), actual.isImportant());
+        assertEquals(expected.getPriority(), actual.getPriority());
+        assertEquals(0, actual.takeDirtyFields());
+    }
+}
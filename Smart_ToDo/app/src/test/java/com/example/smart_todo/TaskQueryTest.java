@@ -0,0 +1,184 @@
+package com.example.smart_todo;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class TaskQueryTest {
+
+    @Test
+    public void emptyQuery_onlyLeavesOutTombstones() {
+        TaskQuery query = TaskQuery.builder().build();
+
+        assertEquals("{\"deleted\":{\"$ne\":true}}", query.toFilter().toString());
+        assertNull(query.toSort());
+        assertNull(query.toProjection());
+        assertEquals(0, query.getLimit());
+    }
+
+    @Test
+    public void conditions_becomeFilterFields() {
+        TaskQuery query = TaskQuery.builder()
+                .completed(false)
+                .important(true)
+                .category("Work")
+                .time(TaskQuery.TimeBucket.TOMORROW)
+                .build();
+
+        assertEquals("{\"deleted\":{\"$ne\":true},\"completed\":false,\"important\":true,"
+                + "\"category\":\"Work\",\"time\":{\"$regex\":\"tomorrow\",\"$options\":\"i\"}}",
+                query.toFilter().toString());
+    }
+
+    @Test
+    public void sort_breaksTiesById() {
+        TaskQuery query = TaskQuery.builder()
+                .sortBy(TaskQuery.SortField.PRIORITY, true)
+                .limit(10)
+                .build();
+
+        assertEquals("{\"priority\":-1,\"id\":1}", query.toSort().toString());
+        assertEquals("{\"filter\":{\"deleted\":{\"$ne\":true}},\"sort\":{\"priority\":-1,\"id\":1},"
+                + "\"limit\":10}", query.toString());
+    }
+
+    @Test
+    public void projection_keepsKeyFieldsAndTheChosenOnes() {
+        TaskQuery query = TaskQuery.builder()
+                .fields(Task.FIELD_NAME | Task.FIELD_IMPORTANT)
+                .build();
+
+        assertEquals("{\"id\":1,\"createdAt\":1,\"updatedAt\":1,\"deleted\":1,\"name\":1,\"important\":1}",
+                query.toProjection().toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void limit_aboveAPage_isRejected() {
+        TaskQuery.builder().limit(TaskQuery.MAX_LIMIT + 1);
+    }
+
+    @Test
+    public void apply_keepsTheTasksTheFilterMatches() {
+        List<Task> tasks = sampleTasks();
+        List<TaskQuery> queries = Arrays.asList(
+                TaskQuery.builder().build(),
+                TaskQuery.builder().completed(true).build(),
+                TaskQuery.builder().important(true).completed(false).build(),
+                TaskQuery.builder().category("Work").build(),
+                TaskQuery.builder().time(TaskQuery.TimeBucket.TODAY).build(),
+                TaskQuery.builder().time(TaskQuery.TimeBucket.TOMORROW).category("Study").build());
+
+        for (TaskQuery query : queries) {
+            List<String> expected = new ArrayList<>();
+            for (Task task : tasks) {
+                if (filterMatches(query.toFilter(), document(task))) {
+                    expected.add(task.getName());
+                }
+            }
+            assertEquals(query.toString(), expected, names(query.apply(tasks)));
+        }
+    }
+
+    @Test
+    public void apply_sortsAndLimitsAsTheServerWould() {
+        TaskQuery query = TaskQuery.builder()
+                .completed(false)
+                .sortBy(TaskQuery.SortField.PRIORITY, true)
+                .limit(3)
+                .build();
+
+        // Report and Essay share priority 1; the lower id comes first, as with {"id":1}
+        List<Task> tasks = sampleTasks();
+        List<String> tied = new ArrayList<>(Arrays.asList(byName(tasks, "Report"), byName(tasks, "Essay")));
+        tied.sort(String::compareTo);
+        List<Task> result = query.apply(tasks);
+
+        assertEquals(3, result.size());
+        assertEquals("Gym", result.get(0).getName());
+        assertEquals(tied, Arrays.asList(result.get(1).getId(), result.get(2).getId()));
+    }
+
+    private static List<Task> sampleTasks() {
+        return Arrays.asList(
+                task("Report", "Work", "Today 5 PM", false, true, 1),
+                task("Invoices", "Work", "Tomorrow", true, false, 2),
+                task("Essay", "Study", "tomorrow morning", false, false, 1),
+                task("Gym", "Health", "Tonight", false, true, 2),
+                task("Groceries", "Shopping", "Anytime", false, false, 0));
+    }
+
+    private static Task task(String name, String category, String time,
+                             boolean completed, boolean important, int priority) {
+        Task task = new Task(name, category, time);
+        task.setCompleted(completed);
+        task.setImportant(important);
+        task.setPriority(priority);
+        return task;
+    }
+
+    private static String byName(List<Task> tasks, String name) {
+        for (Task task : tasks) {
+            if (task.getName().equals(name)) {
+                return task.getId();
+            }
+        }
+        throw new AssertionError(name);
+    }
+
+    private static List<String> names(List<Task> tasks) {
+        List<String> names = new ArrayList<>();
+        for (Task task : tasks) {
+            names.add(task.getName());
+        }
+        return names;
+    }
+
+    /**
+     * The fields of a stored task that the filter can test
+     */
+    private static JsonObject document(Task task) {
+        JsonObject document = new JsonObject();
+        document.addProperty("id", task.getId());
+        document.addProperty("category", task.getCategory());
+        document.addProperty("time", task.getTime());
+        document.addProperty("completed", task.isCompleted());
+        document.addProperty("important", task.isImportant());
+        return document;
+    }
+
+    /**
+     * The part of MongoDB's matching that TaskQuery filters use: equality, $ne and
+     * case-insensitive $regex
+     */
+    private static boolean filterMatches(JsonObject filter, JsonObject document) {
+        for (Map.Entry<String, JsonElement> condition : filter.entrySet()) {
+            JsonElement value = document.get(condition.getKey());
+            if (!condition.getValue().isJsonObject()) {
+                if (!condition.getValue().equals(value)) {
+                    return false;
+                }
+                continue;
+            }
+            JsonObject operator = condition.getValue().getAsJsonObject();
+            if (operator.has("$ne") && operator.get("$ne").equals(value)) {
+                return false;
+            }
+            if (operator.has("$regex")) {
+                Pattern pattern = Pattern.compile(operator.get("$regex").getAsString(), Pattern.CASE_INSENSITIVE);
+                if (value == null || !pattern.matcher(value.getAsString()).find()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.smart_todo;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class TaskRestoreTest {
+    @Test
+    public void restore_keepsStoredIdAndCreationTime() {
+        TaskId id = TaskId.fromString("6f1c2a3b-0000-4000-8000-00000000abcd");
+        Date createdAt = new Date(1600000000000L);
+
+        Task task = Task.restore(id, createdAt);
+
+        assertSame(id, task.getTaskId());
+        assertEquals(createdAt, task.getCreatedAt());
+        assertEquals(createdAt.getTime(), task.getUpdatedAt());
+    }
+
+    @Test
+    public void restore_fillsInMissingValuesAsForANewTask() {
+        long before = System.currentTimeMillis();
+        Task task = Task.restore(null, null);
+        long after = System.currentTimeMillis();
+
+        assertTrue(task.getTaskId().isUuid());
+        assertTrue(task.getCreatedAt().getTime() >= before && task.getCreatedAt().getTime() <= after);
+        assertFalse(task.isCompleted());
+        assertFalse(task.isImportant());
+        assertEquals(0, task.getPriority());
+        assertEquals("", task.getDescription());
+    }
+
+    @Test
+    public void restore_hasNoChangesToSend() {
+        Task task = Task.restore(TaskId.random(), new Date(0));
+        assertEquals(0, task.takeDirtyFields());
+
+        task.setName("Decoded");
+        task.setCompleted(true);
+        task.clearDirtyFields();
+        assertEquals(0, task.takeDirtyFields());
+    }
+
+    @Test
+    public void restoredTask_equalsTheTaskItWasStoredFrom() {
+        Task original = new Task("Call the bank", "Finance", "Tomorrow");
+        Task restored = Task.restore(TaskId.fromString(original.getTaskId().toString()),
+                original.getCreatedAt());
+
+        assertEquals(original, restored);
+        assertEquals(original.hashCode(), restored.hashCode());
+    }
+
+    @Test
+    public void copy_keepsStoredFieldsButNotChanges() {
+        Task task = Task.restore(TaskId.random(), new Date(1000));
+        task.setName("Write report");
+        task.setDescription("Quarterly numbers");
+        task.setCategory("Work");
+        task.setTime("Today");
+        task.setDueDate(new Date(5000));
+        task.setImportant(true);
+        task.setPriority(1);
+        task.markUpdated();
+
+        Task copy = task.copy();
+
+        assertEquals(task.getTaskId(), copy.getTaskId());
+        assertEquals(task.getCreatedAt(), copy.getCreatedAt());
+        assertEquals(task.getUpdatedAt(), copy.getUpdatedAt());
+        assertEquals("Write report", copy.getName());
+        assertEquals("Quarterly numbers", copy.getDescription());
+        assertEquals("Work", copy.getCategory());
+        assertEquals("Today", copy.getTime());
+        assertEquals(new Date(5000), copy.getDueDate());
+        assertTrue(copy.isImportant());
+        assertEquals(1, copy.getPriority());
+        assertEquals(0, copy.takeDirtyFields());
+        assertNotEquals(0, task.takeDirtyFields());
+    }
+}